@@ -0,0 +1,164 @@
+package com.panbc.simplehorizontallistview;
+
+/**
+ * Prefix sums of item widths, kept in a Fenwick tree so that the offset of a position, the position
+ * at an offset and the update of a single width all take O(log n). Items that were never measured
+ * count with an estimated width until {@link #setWidth(int, int)} reports the real one. Inserting or
+ * removing items keeps the widths of all other items and rebuilds only the tree nodes behind the
+ * change, in O(count - position).
+ */
+class ItemOffsetIndex {
+
+    private int mCount;
+
+    private int[] mWidths = new int[0];
+
+    /**
+     * 1-based Fenwick tree, mTree[i] holds the sum of the widths of (i - lowestOneBit(i), i].
+     */
+    private long[] mTree = new long[1];
+
+    private int mEstimatedWidth;
+
+    ItemOffsetIndex(int count, int estimatedWidth) {
+        reset(count, estimatedWidth);
+    }
+
+    /**
+     * Forgets all widths and assumes every item is estimatedWidth wide, in O(count).
+     */
+    void reset(int count, int estimatedWidth) {
+        if (mWidths.length < count) {
+            mWidths = new int[count];
+            mTree = new long[count + 1];
+        }
+        mCount = count;
+        mEstimatedWidth = estimatedWidth;
+        final int[] widths = mWidths;
+        final long[] tree = mTree;
+        for (int i = 0; i < count; i++) {
+            widths[i] = estimatedWidth;
+            tree[i + 1] = estimatedWidth;
+        }
+        for (int i = 1; i <= count; i++) {
+            final int parent = i + (i & -i);
+            if (parent <= count) {
+                tree[parent] += tree[i];
+            }
+        }
+    }
+
+    /**
+     * Adds count items at position, counting with the estimated width, and moves the items behind
+     * them along.
+     */
+    void insert(int position, int count) {
+        final int newCount = mCount + count;
+        if (mWidths.length < newCount) {
+            final int capacity = Math.max(newCount, mWidths.length * 2);
+            final int[] widths = new int[capacity];
+            System.arraycopy(mWidths, 0, widths, 0, mCount);
+            final long[] tree = new long[capacity + 1];
+            System.arraycopy(mTree, 0, tree, 0, mCount + 1);
+            mWidths = widths;
+            mTree = tree;
+        }
+        System.arraycopy(mWidths, position, mWidths, position + count, mCount - position);
+        for (int i = position; i < position + count; i++) {
+            mWidths[i] = mEstimatedWidth;
+        }
+        mCount = newCount;
+        rebuildFrom(position);
+    }
+
+    /**
+     * Drops count items starting at position and moves the items behind them along.
+     */
+    void remove(int position, int count) {
+        System.arraycopy(mWidths, position + count, mWidths, position, mCount - position - count);
+        mCount -= count;
+        rebuildFrom(position);
+    }
+
+    /**
+     * Recomputes the tree nodes covering items from position on. Nodes before them only cover items
+     * before position and are still right; every later node is its own item plus its children, which
+     * come before it.
+     */
+    private void rebuildFrom(int position) {
+        final int[] widths = mWidths;
+        final long[] tree = mTree;
+        for (int i = position + 1; i <= mCount; i++) {
+            long sum = widths[i - 1];
+            final int lowest = i & -i;
+            for (int child = 1; child < lowest; child <<= 1) {
+                sum += tree[i - child];
+            }
+            tree[i] = sum;
+        }
+    }
+
+    int getCount() {
+        return mCount;
+    }
+
+    int getEstimatedWidth() {
+        return mEstimatedWidth;
+    }
+
+    int getWidth(int position) {
+        return mWidths[position];
+    }
+
+    void setWidth(int position, int width) {
+        final int delta = width - mWidths[position];
+        if (delta == 0) {
+            return;
+        }
+        mWidths[position] = width;
+        final long[] tree = mTree;
+        for (int i = position + 1; i <= mCount; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    /**
+     * @return the sum of the widths of all items before position
+     */
+    long getOffset(int position) {
+        long sum = 0;
+        final long[] tree = mTree;
+        for (int i = Math.min(position, mCount); i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    long getTotalWidth() {
+        return getOffset(mCount);
+    }
+
+    /**
+     * @return the position of the item covering offset, clamped to the valid positions, or -1 if the
+     * index is empty
+     */
+    int getPosition(long offset) {
+        if (mCount == 0) {
+            return -1;
+        }
+        if (offset < 0) {
+            return 0;
+        }
+        final long[] tree = mTree;
+        int position = 0;
+        long remaining = offset;
+        for (int step = Integer.highestOneBit(mCount); step > 0; step >>= 1) {
+            final int next = position + step;
+            if (next <= mCount && tree[next] <= remaining) {
+                position = next;
+                remaining -= tree[next];
+            }
+        }
+        return Math.min(position, mCount - 1);
+    }
+}
@@ -0,0 +1,143 @@
+package com.panbc.simplehorizontallistview;
+
+import android.support.v4.util.LongSparseArray;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Runs the view independent part of binding items on a worker executor and keeps the results until
+ * the items are bound. Results are keyed by stable id or position, see
+ * {@link SimpleHorizontalListView.PreparingAdapter}. All methods must be called on the thread the
+ * result executor delivers to, which is the UI thread for a {@link SimpleHorizontalListView}.
+ */
+class ItemPreparer {
+
+    interface Preparation {
+        /**
+         * Called on the worker executor.
+         */
+        Object prepare(int position);
+    }
+
+    private final Executor mWorkerExecutor;
+
+    private final Executor mResultExecutor;
+
+    /**
+     * Pending and finished tasks by key.
+     */
+    private final LongSparseArray<PrepareTask> mTasks = new LongSparseArray<PrepareTask>();
+
+    ItemPreparer(Executor workerExecutor, Executor resultExecutor) {
+        mWorkerExecutor = workerExecutor;
+        mResultExecutor = resultExecutor;
+    }
+
+    /**
+     * Starts preparing the item at position unless it is already pending or prepared.
+     */
+    void prepare(int position, long key, Preparation preparation) {
+        if (mTasks.get(key) != null) {
+            return;
+        }
+        final PrepareTask task = new PrepareTask(position, key, preparation);
+        mTasks.put(key, task);
+        mWorkerExecutor.execute(task);
+    }
+
+    /**
+     * @return the prepared result for key, which is forgotten afterwards, or null if it isn't ready.
+     * A task still pending for key is cancelled, the caller binds the item without it.
+     */
+    Object take(long key) {
+        final PrepareTask task = mTasks.get(key);
+        if (task == null) {
+            return null;
+        }
+        mTasks.remove(key);
+        if (!task.mDone) {
+            task.mCancelled = true;
+            return null;
+        }
+        return task.mResult;
+    }
+
+    /**
+     * Cancels pending tasks and drops results of items outside [firstPosition, lastPosition].
+     */
+    void trim(int firstPosition, int lastPosition) {
+        for (int i = mTasks.size() - 1; i >= 0; i--) {
+            final PrepareTask task = mTasks.valueAt(i);
+            if (task.mPosition < firstPosition || task.mPosition > lastPosition) {
+                task.mCancelled = true;
+                mTasks.removeAt(i);
+            }
+        }
+    }
+
+    /**
+     * Cancels all pending tasks and drops all results, e.g. because the data set changed.
+     */
+    void cancelAll() {
+        for (int i = mTasks.size() - 1; i >= 0; i--) {
+            mTasks.valueAt(i).mCancelled = true;
+        }
+        mTasks.clear();
+    }
+
+    int getPendingCount() {
+        int count = 0;
+        for (int i = 0; i < mTasks.size(); i++) {
+            if (!mTasks.valueAt(i).mDone) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    int getResultCount() {
+        return mTasks.size() - getPendingCount();
+    }
+
+    private class PrepareTask implements Runnable {
+
+        private final int mPosition;
+
+        private final long mKey;
+
+        private final Preparation mPreparation;
+
+        /**
+         * Written on the result thread, read on the worker to skip work nobody waits for anymore.
+         */
+        private volatile boolean mCancelled;
+
+        private boolean mDone;
+
+        private Object mResult;
+
+        PrepareTask(int position, long key, Preparation preparation) {
+            mPosition = position;
+            mKey = key;
+            mPreparation = preparation;
+        }
+
+        @Override
+        public void run() {
+            if (mCancelled) {
+                return;
+            }
+            final Object result = mPreparation.prepare(mPosition);
+            mResultExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    // a cancelled task may have been replaced by a new one for the same key
+                    if (!mCancelled && mTasks.get(mKey) == PrepareTask.this) {
+                        mResult = result;
+                        mDone = true;
+                    }
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.panbc.simplehorizontallistview;
+
+import java.util.Arrays;
+
+/**
+ * Remembers measured item widths so that a recycled view showing an item again can be measured with
+ * an exact width. Keys are adapter positions, or stable ids when the adapter has them. The table uses
+ * open addressing over primitive arrays, so lookups and updates don't allocate.
+ */
+class ItemWidthCache {
+
+    static final int NO_WIDTH = -1;
+
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private long[] mKeys;
+
+    private int[] mWidths;
+
+    private int mSize;
+
+    ItemWidthCache() {
+        allocate(16);
+    }
+
+    private void allocate(int capacity) {
+        mKeys = new long[capacity];
+        mWidths = new int[capacity];
+        Arrays.fill(mKeys, EMPTY);
+        mSize = 0;
+    }
+
+    /**
+     * @return the width stored for key, or {@link #NO_WIDTH}
+     */
+    int get(long key) {
+        if (key == EMPTY) {
+            return NO_WIDTH;
+        }
+        final long[] keys = mKeys;
+        final int mask = keys.length - 1;
+        int index = indexFor(key, mask);
+        while (keys[index] != EMPTY) {
+            if (keys[index] == key) {
+                return mWidths[index];
+            }
+            index = (index + 1) & mask;
+        }
+        return NO_WIDTH;
+    }
+
+    void put(long key, int width) {
+        if (key == EMPTY) {
+            // AdapterView.INVALID_ROW_ID, nothing sensible to remember
+            return;
+        }
+        if ((mSize + 1) * 2 > mKeys.length) {
+            grow();
+        }
+        final long[] keys = mKeys;
+        final int mask = keys.length - 1;
+        int index = indexFor(key, mask);
+        while (keys[index] != EMPTY) {
+            if (keys[index] == key) {
+                mWidths[index] = width;
+                return;
+            }
+            index = (index + 1) & mask;
+        }
+        keys[index] = key;
+        mWidths[index] = width;
+        mSize++;
+    }
+
+    int size() {
+        return mSize;
+    }
+
+    void clear() {
+        if (mSize > 0) {
+            Arrays.fill(mKeys, EMPTY);
+            mSize = 0;
+        }
+    }
+
+    private void grow() {
+        final long[] oldKeys = mKeys;
+        final int[] oldWidths = mWidths;
+        allocate(oldKeys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                put(oldKeys[i], oldWidths[i]);
+            }
+        }
+    }
+
+    private static int indexFor(long key, int mask) {
+        final long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
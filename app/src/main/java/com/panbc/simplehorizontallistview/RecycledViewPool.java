@@ -0,0 +1,107 @@
+package com.panbc.simplehorizontallistview;
+
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+import android.view.View;
+
+import java.util.ArrayDeque;
+
+/**
+ * Keeps item views for reuse across several {@link SimpleHorizontalListView}s, e.g. the rows of a
+ * vertical feed, so that a row binding new data takes the views other rows gave up instead of
+ * inflating its own. A list draws from the pool when its own scrap heap has no view of a type and
+ * hands its views to the pool when its scrap heap overflows or it gets another adapter.
+ * <p>
+ * Views in the pool are removed from their list and detached from the window, and are added to the
+ * list that takes them like new views. View types are shared, so all adapters of the lists using one
+ * pool must return the same view type for views that can stand in for each other. Each type keeps at
+ * most {@link #setMaxRecycledViews(int, int) max} views; beyond that the least recently returned view
+ * of the type is dropped.
+ */
+public class RecycledViewPool {
+
+    public static final int DEFAULT_MAX_RECYCLED_VIEWS = 5;
+
+    /**
+     * Views by view type, the least recently returned view first.
+     */
+    private final SparseArray<ArrayDeque<View>> mViews = new SparseArray<ArrayDeque<View>>();
+
+    private final SparseIntArray mMaxViews = new SparseIntArray();
+
+    private int mEvictedCount;
+
+    /**
+     * @param max the maximum number of views of viewType kept, or a negative value to restore
+     *            {@link #DEFAULT_MAX_RECYCLED_VIEWS}
+     */
+    public void setMaxRecycledViews(int viewType, int max) {
+        if (max < 0) {
+            mMaxViews.delete(viewType);
+        } else {
+            mMaxViews.put(viewType, max);
+        }
+        final ArrayDeque<View> views = mViews.get(viewType);
+        if (views != null) {
+            trim(views, getMaxRecycledViews(viewType));
+        }
+    }
+
+    public int getMaxRecycledViews(int viewType) {
+        return mMaxViews.get(viewType, DEFAULT_MAX_RECYCLED_VIEWS);
+    }
+
+    /**
+     * @return the most recently returned view of viewType, removed from the pool, or null
+     */
+    View getRecycledView(int viewType) {
+        final ArrayDeque<View> views = mViews.get(viewType);
+        return views == null ? null : views.pollLast();
+    }
+
+    /**
+     * Takes a view that no longer has a parent.
+     */
+    void putRecycledView(View view, int viewType) {
+        final int max = getMaxRecycledViews(viewType);
+        if (max == 0) {
+            mEvictedCount++;
+            return;
+        }
+        ArrayDeque<View> views = mViews.get(viewType);
+        if (views == null) {
+            views = new ArrayDeque<View>(max);
+            mViews.put(viewType, views);
+        }
+        // measured again for whichever list takes it
+        view.forceLayout();
+        views.addLast(view);
+        trim(views, max);
+    }
+
+    private void trim(ArrayDeque<View> views, int max) {
+        while (views.size() > max) {
+            views.pollFirst();
+            mEvictedCount++;
+        }
+    }
+
+    public int getRecycledViewCount(int viewType) {
+        final ArrayDeque<View> views = mViews.get(viewType);
+        return views == null ? 0 : views.size();
+    }
+
+    /**
+     * @return the number of views dropped so far because their view type exceeded its limit
+     */
+    public int getEvictedViewCount() {
+        return mEvictedCount;
+    }
+
+    /**
+     * Drops all views.
+     */
+    public void clear() {
+        mViews.clear();
+    }
+}
@@ -0,0 +1,186 @@
+package com.panbc.simplehorizontallistview;
+
+/**
+ * Counters and timings {@link SimpleHorizontalListView} records while metrics are enabled with
+ * {@link SimpleHorizontalListView#setMetricsEnabled(boolean)}. Instances handed out are snapshots
+ * and don't change afterwards. Times are in nanoseconds.
+ */
+public class ScrollMetrics {
+
+    long getViewNanos;
+
+    int getViewCount;
+
+    long setupChildNanos;
+
+    int setupChildCount;
+
+    int activeHits;
+
+    int prefetchHits;
+
+    int scrapHitsSamePosition;
+
+    int scrapHitsOtherPosition;
+
+    int inflates;
+
+    int scrapSize;
+
+    int maxScrapSize;
+
+    long scrollNanos;
+
+    long maxScrollNanos;
+
+    int scrollCount;
+
+    ScrollMetrics() {
+    }
+
+    ScrollMetrics(ScrollMetrics source) {
+        getViewNanos = source.getViewNanos;
+        getViewCount = source.getViewCount;
+        setupChildNanos = source.setupChildNanos;
+        setupChildCount = source.setupChildCount;
+        activeHits = source.activeHits;
+        prefetchHits = source.prefetchHits;
+        scrapHitsSamePosition = source.scrapHitsSamePosition;
+        scrapHitsOtherPosition = source.scrapHitsOtherPosition;
+        inflates = source.inflates;
+        scrapSize = source.scrapSize;
+        maxScrapSize = source.maxScrapSize;
+        scrollNanos = source.scrollNanos;
+        maxScrollNanos = source.maxScrollNanos;
+        scrollCount = source.scrollCount;
+    }
+
+    void reset() {
+        getViewNanos = 0;
+        getViewCount = 0;
+        setupChildNanos = 0;
+        setupChildCount = 0;
+        activeHits = 0;
+        prefetchHits = 0;
+        scrapHitsSamePosition = 0;
+        scrapHitsOtherPosition = 0;
+        inflates = 0;
+        maxScrapSize = scrapSize;
+        scrollNanos = 0;
+        maxScrollNanos = 0;
+        scrollCount = 0;
+    }
+
+    void recordScrapSize(int size) {
+        scrapSize = size;
+        if (size > maxScrapSize) {
+            maxScrapSize = size;
+        }
+    }
+
+    void recordScroll(long nanos) {
+        scrollNanos += nanos;
+        scrollCount++;
+        if (nanos > maxScrollNanos) {
+            maxScrollNanos = nanos;
+        }
+    }
+
+    /**
+     * @return time spent in the adapter's getView, prepared or not
+     */
+    public long getGetViewNanos() {
+        return getViewNanos;
+    }
+
+    public int getGetViewCount() {
+        return getViewCount;
+    }
+
+    /**
+     * @return time spent attaching, measuring and laying out children
+     */
+    public long getSetupChildNanos() {
+        return setupChildNanos;
+    }
+
+    public int getSetupChildCount() {
+        return setupChildCount;
+    }
+
+    /**
+     * @return children that were still attached from the previous layout pass and weren't bound again
+     */
+    public int getActiveHits() {
+        return activeHits;
+    }
+
+    /**
+     * @return children bound ahead of time by the prefetcher
+     */
+    public int getPrefetchHits() {
+        return prefetchHits;
+    }
+
+    /**
+     * @return children bound to the scrap view that showed the same position before
+     */
+    public int getScrapHitsSamePosition() {
+        return scrapHitsSamePosition;
+    }
+
+    /**
+     * @return children bound to a scrap view that showed another position
+     */
+    public int getScrapHitsOtherPosition() {
+        return scrapHitsOtherPosition;
+    }
+
+    /**
+     * @return children the adapter created, because no scrap view was available or the adapter
+     * didn't reuse the one it got
+     */
+    public int getInflates() {
+        return inflates;
+    }
+
+    /**
+     * @return views in the scrap heaps after the last scroll step
+     */
+    public int getScrapSize() {
+        return scrapSize;
+    }
+
+    public int getMaxScrapSize() {
+        return maxScrapSize;
+    }
+
+    /**
+     * @return time spent in scroll steps, including binding and laying out the items they expose
+     */
+    public long getScrollNanos() {
+        return scrollNanos;
+    }
+
+    public long getMaxScrollNanos() {
+        return maxScrollNanos;
+    }
+
+    public int getScrollCount() {
+        return scrollCount;
+    }
+
+    @Override
+    public String toString() {
+        return "ScrollMetrics{getView=" + getViewCount + "/" + getViewNanos / 1000 + "us"
+                + ", setupChild=" + setupChildCount + "/" + setupChildNanos / 1000 + "us"
+                + ", active=" + activeHits
+                + ", prefetch=" + prefetchHits
+                + ", scrapSame=" + scrapHitsSamePosition
+                + ", scrapOther=" + scrapHitsOtherPosition
+                + ", inflates=" + inflates
+                + ", scrap=" + scrapSize + "/" + maxScrapSize
+                + ", scroll=" + scrollCount + "/" + scrollNanos / 1000 + "us"
+                + ", maxScroll=" + maxScrollNanos / 1000 + "us}";
+    }
+}
@@ -0,0 +1,500 @@
+package com.panbc.simplehorizontallistview;
+
+import android.content.Context;
+import android.hardware.SensorManager;
+import android.view.ViewConfiguration;
+import android.widget.OverScroller;
+import android.widget.Scroller;
+
+/**
+ * Computes the position of a fling or an animated scroll for {@link SimpleHorizontalListView}. The
+ * view samples the model once per frame with the frame time reported by the Choreographer, so
+ * models that compute positions from that time produce even per-frame deltas at any refresh rate.
+ * Positions start at 0 and grow in the direction of a positive velocity or distance.
+ */
+public abstract class ScrollModel {
+
+    /**
+     * Starts a fling at position 0.
+     *
+     * @param velocity       initial velocity in pixels per second
+     * @param startTimeNanos start time on the {@link System#nanoTime()} time base
+     */
+    public abstract void fling(int velocity, long startTimeNanos);
+
+    /**
+     * Starts an animation from position 0 to distance.
+     */
+    public abstract void scrollBy(int distance, int durationMillis, long startTimeNanos);
+
+    /**
+     * Advances the model to frameTimeNanos.
+     *
+     * @return true if the animation is still running afterwards
+     */
+    public abstract boolean computePosition(long frameTimeNanos);
+
+    public abstract int getPosition();
+
+    /**
+     * @return the position the current animation ends at
+     */
+    public abstract int getFinalPosition();
+
+    /**
+     * Changes where the current animation ends without restarting it.
+     *
+     * @return false if the model can't retarget a running animation
+     */
+    public boolean setFinalPosition(int position) {
+        return false;
+    }
+
+    /**
+     * Ends the animation at its current position.
+     */
+    public abstract void stop();
+
+    public abstract boolean isFinished();
+
+    /**
+     * The curves of the {@link Scroller} the view has always used, computed from the frame time: a
+     * fling follows Scroller's spline deceleration and a scroll to a target its viscous fluid
+     * interpolation. Scroller itself reads its own animation clock, which only API 24 and above lock
+     * to the frame time.
+     */
+    public static class ScrollerModel extends ScrollModel {
+
+        private static final int IDLE = 0;
+
+        private static final int SCROLL = 1;
+
+        private static final int FLING = 2;
+
+        private static final long NANOS_PER_MILLI = 1000000;
+
+        private static final float DECELERATION_RATE = (float) (Math.log(0.78) / Math.log(0.9));
+
+        private static final float INFLEXION = 0.35f;
+
+        private static final float START_TENSION = 0.5f;
+
+        private static final float END_TENSION = 1.0f;
+
+        private static final float P1 = START_TENSION * INFLEXION;
+
+        private static final float P2 = 1.0f - END_TENSION * (1.0f - INFLEXION);
+
+        private static final int NB_SAMPLES = 100;
+
+        /**
+         * Fraction of the fling distance covered at each hundredth of its duration.
+         */
+        private static final float[] SPLINE_POSITION = new float[NB_SAMPLES + 1];
+
+        private static final float VISCOUS_FLUID_SCALE = 8.0f;
+
+        private static final float VISCOUS_FLUID_NORMALIZE;
+
+        private static final float VISCOUS_FLUID_OFFSET;
+
+        static {
+            float xMin = 0.0f;
+            for (int i = 0; i < NB_SAMPLES; i++) {
+                final float alpha = (float) i / NB_SAMPLES;
+                float xMax = 1.0f;
+                float x, tx, coef;
+                while (true) {
+                    x = xMin + (xMax - xMin) / 2.0f;
+                    coef = 3.0f * x * (1.0f - x);
+                    tx = coef * ((1.0f - x) * P1 + x * P2) + x * x * x;
+                    if (Math.abs(tx - alpha) < 1E-5) {
+                        break;
+                    }
+                    if (tx > alpha) {
+                        xMax = x;
+                    } else {
+                        xMin = x;
+                    }
+                }
+                SPLINE_POSITION[i] = coef * ((1.0f - x) * START_TENSION + x) + x * x * x;
+            }
+            SPLINE_POSITION[NB_SAMPLES] = 1.0f;
+
+            VISCOUS_FLUID_NORMALIZE = 1.0f / viscousFluid(1.0f);
+            VISCOUS_FLUID_OFFSET = 1.0f - VISCOUS_FLUID_NORMALIZE * viscousFluid(1.0f);
+        }
+
+        private final float mFlingFriction;
+
+        /**
+         * Deceleration of a fling in pixels per second squared, before friction.
+         */
+        private final float mPhysicalCoeff;
+
+        private int mMode = IDLE;
+
+        private int mPosition;
+
+        private int mFinalPosition;
+
+        private long mStartTimeNanos;
+
+        private long mDurationNanos;
+
+        public ScrollerModel(Context context) {
+            mFlingFriction = ViewConfiguration.getScrollFriction();
+            final float ppi = context.getResources().getDisplayMetrics().density * 160.0f;
+            mPhysicalCoeff = SensorManager.GRAVITY_EARTH // g (m/s^2)
+                    * 39.37f // inch/meter
+                    * ppi
+                    * 0.84f; // look and feel tuning
+        }
+
+        @Override
+        public void fling(int velocity, long startTimeNanos) {
+            final double l = Math.log(INFLEXION * Math.abs(velocity) / (mFlingFriction * mPhysicalCoeff));
+            final double decelMinusOne = DECELERATION_RATE - 1.0;
+            final double distance = mFlingFriction * mPhysicalCoeff * Math.exp(DECELERATION_RATE / decelMinusOne * l);
+            start(FLING, (int) (distance * Math.signum(velocity)),
+                    (int) (1000.0 * Math.exp(l / decelMinusOne)), startTimeNanos);
+        }
+
+        @Override
+        public void scrollBy(int distance, int durationMillis, long startTimeNanos) {
+            start(SCROLL, distance, durationMillis, startTimeNanos);
+        }
+
+        private void start(int mode, int distance, int durationMillis, long startTimeNanos) {
+            mPosition = 0;
+            mFinalPosition = distance;
+            mStartTimeNanos = startTimeNanos;
+            mDurationNanos = durationMillis * NANOS_PER_MILLI;
+            mMode = durationMillis > 0 && distance != 0 ? mode : IDLE;
+        }
+
+        @Override
+        public boolean computePosition(long frameTimeNanos) {
+            if (mMode == IDLE) {
+                return false;
+            }
+            final long elapsed = Math.max(0, frameTimeNanos - mStartTimeNanos);
+            if (elapsed >= mDurationNanos) {
+                mPosition = mFinalPosition;
+                mMode = IDLE;
+                return false;
+            }
+            final float t = (float) elapsed / mDurationNanos;
+            final float fraction;
+            if (mMode == FLING) {
+                final int index = (int) (NB_SAMPLES * t);
+                final float tInf = (float) index / NB_SAMPLES;
+                final float tSup = (float) (index + 1) / NB_SAMPLES;
+                final float dInf = SPLINE_POSITION[index];
+                final float dSup = SPLINE_POSITION[index + 1];
+                fraction = dInf + (t - tInf) / (tSup - tInf) * (dSup - dInf);
+            } else {
+                final float interpolated = VISCOUS_FLUID_NORMALIZE * viscousFluid(t);
+                fraction = interpolated > 0 ? interpolated + VISCOUS_FLUID_OFFSET : interpolated;
+            }
+            mPosition = Math.round(fraction * mFinalPosition);
+            return true;
+        }
+
+        private static float viscousFluid(float x) {
+            x *= VISCOUS_FLUID_SCALE;
+            if (x < 1.0f) {
+                x -= (1.0f - (float) Math.exp(-x));
+            } else {
+                final float start = 0.36787944117f; // 1/e == exp(-1)
+                x = 1.0f - (float) Math.exp(1.0f - x);
+                x = start + x * (1.0f - start);
+            }
+            return x;
+        }
+
+        @Override
+        public int getPosition() {
+            return mPosition;
+        }
+
+        @Override
+        public int getFinalPosition() {
+            return mMode == IDLE ? mPosition : mFinalPosition;
+        }
+
+        /**
+         * Like {@link Scroller#setFinalX(int)}, the curve keeps its duration and is stretched to end
+         * at position.
+         */
+        @Override
+        public boolean setFinalPosition(int position) {
+            if (mMode == IDLE) {
+                return false;
+            }
+            mFinalPosition = position;
+            return true;
+        }
+
+        @Override
+        public void stop() {
+            mMode = IDLE;
+        }
+
+        @Override
+        public boolean isFinished() {
+            return mMode == IDLE;
+        }
+    }
+
+    /**
+     * Wraps an {@link OverScroller}, whose fling curve follows the platform's spline deceleration.
+     * OverScroller reads its own animation clock rather than the frame time.
+     */
+    public static class OverScrollerModel extends ScrollModel {
+
+        private final OverScroller mScroller;
+
+        public OverScrollerModel(Context context) {
+            mScroller = new OverScroller(context);
+        }
+
+        @Override
+        public void fling(int velocity, long startTimeNanos) {
+            mScroller.fling(0, 0, velocity, 0, Integer.MIN_VALUE, Integer.MAX_VALUE, 0, 0);
+        }
+
+        @Override
+        public void scrollBy(int distance, int durationMillis, long startTimeNanos) {
+            mScroller.startScroll(0, 0, distance, 0, durationMillis);
+        }
+
+        @Override
+        public boolean computePosition(long frameTimeNanos) {
+            return mScroller.computeScrollOffset();
+        }
+
+        @Override
+        public int getPosition() {
+            return mScroller.getCurrX();
+        }
+
+        @Override
+        public int getFinalPosition() {
+            return mScroller.getFinalX();
+        }
+
+        /**
+         * A fling that would pass position is restarted from its current position and velocity and
+         * stops there, anything else springs back to position.
+         */
+        @Override
+        public boolean setFinalPosition(int position) {
+            if (mScroller.isFinished()) {
+                return false;
+            }
+            final int current = mScroller.getCurrX();
+            final int remaining = mScroller.getFinalX() - current;
+            final int distance = position - current;
+            if (distance != 0 && Integer.signum(distance) == Integer.signum(remaining)
+                    && Math.abs(distance) <= Math.abs(remaining)) {
+                final int velocity = (int) Math.copySign(mScroller.getCurrVelocity(), distance);
+                if (distance > 0) {
+                    mScroller.fling(current, 0, velocity, 0, Integer.MIN_VALUE, position, 0, 0);
+                } else {
+                    mScroller.fling(current, 0, velocity, 0, position, Integer.MAX_VALUE, 0, 0);
+                }
+            } else if (!mScroller.springBack(current, 0, position, position, 0, 0)) {
+                // already at position
+                mScroller.forceFinished(true);
+            }
+            return true;
+        }
+
+        @Override
+        public void stop() {
+            mScroller.forceFinished(true);
+        }
+
+        @Override
+        public boolean isFinished() {
+            return mScroller.isFinished();
+        }
+    }
+
+    /**
+     * Physics model computed from the frame time alone: a fling decays exponentially under friction
+     * and a scroll to a target runs a damped spring. Being independent of any platform clock it also
+     * produces the same positions for the same frame times everywhere.
+     */
+    public static class SpringModel extends ScrollModel {
+
+        private static final int IDLE = 0;
+
+        private static final int DECAY = 1;
+
+        private static final int SPRING = 2;
+
+        private static final double NANOS_PER_SECOND = 1e9;
+
+        /**
+         * Longest spring integration step, short enough to keep stiff springs stable.
+         */
+        private static final double MAX_STEP_SECONDS = 1 / 480.0;
+
+        private final double mFriction;
+
+        private final double mStiffness;
+
+        private final double mDamping;
+
+        /**
+         * Animations end once slower than this, in pixels per second.
+         */
+        private final double mVelocityThreshold;
+
+        private int mMode = IDLE;
+
+        private double mX;
+
+        private double mVelocity;
+
+        /**
+         * Start position, velocity and time of the current decay.
+         */
+        private double mStartX;
+
+        private double mStartVelocity;
+
+        private long mStartTimeNanos;
+
+        /**
+         * Friction of the current decay, can differ from mFriction after {@link #setFinalPosition(int)}.
+         */
+        private double mDecayFriction;
+
+        private double mTarget;
+
+        private long mLastTimeNanos;
+
+        public SpringModel() {
+            this(4.2, 1500, 1);
+        }
+
+        /**
+         * @param friction     exponential decay rate of a fling, per second
+         * @param stiffness    spring constant of scrolls to a target
+         * @param dampingRatio 1 for a critically damped spring that doesn't overshoot, below 1 to bounce
+         */
+        public SpringModel(double friction, double stiffness, double dampingRatio) {
+            mFriction = friction;
+            mStiffness = stiffness;
+            mDamping = 2 * dampingRatio * Math.sqrt(stiffness);
+            mVelocityThreshold = 10;
+        }
+
+        @Override
+        public void fling(int velocity, long startTimeNanos) {
+            startDecay(0, velocity, mFriction, startTimeNanos);
+        }
+
+        private void startDecay(double x, double velocity, double friction, long startTimeNanos) {
+            mX = x;
+            mVelocity = velocity;
+            mStartX = x;
+            mStartVelocity = velocity;
+            mDecayFriction = friction;
+            mStartTimeNanos = startTimeNanos;
+            mLastTimeNanos = startTimeNanos;
+            mMode = Math.abs(velocity) > mVelocityThreshold ? DECAY : IDLE;
+        }
+
+        /**
+         * The duration is not used, a spring takes as long as its stiffness and damping make it take.
+         */
+        @Override
+        public void scrollBy(int distance, int durationMillis, long startTimeNanos) {
+            mX = 0;
+            mVelocity = 0;
+            mLastTimeNanos = startTimeNanos;
+            startSpring(distance);
+        }
+
+        private void startSpring(double target) {
+            mTarget = target;
+            mMode = SPRING;
+        }
+
+        @Override
+        public boolean computePosition(long frameTimeNanos) {
+            if (mMode == DECAY) {
+                final double t = Math.max(0, frameTimeNanos - mStartTimeNanos) / NANOS_PER_SECOND;
+                final double decay = Math.exp(-mDecayFriction * t);
+                mVelocity = mStartVelocity * decay;
+                mX = mStartX + mStartVelocity / mDecayFriction * (1 - decay);
+                if (Math.abs(mVelocity) <= mVelocityThreshold) {
+                    mX = mStartX + mStartVelocity / mDecayFriction;
+                    mVelocity = 0;
+                    mMode = IDLE;
+                }
+            } else if (mMode == SPRING) {
+                double remaining = Math.max(0, frameTimeNanos - mLastTimeNanos) / NANOS_PER_SECOND;
+                while (remaining > 0) {
+                    final double step = Math.min(remaining, MAX_STEP_SECONDS);
+                    final double acceleration = -mStiffness * (mX - mTarget) - mDamping * mVelocity;
+                    mVelocity += acceleration * step;
+                    mX += mVelocity * step;
+                    remaining -= step;
+                }
+                if (Math.abs(mX - mTarget) < 0.5 && Math.abs(mVelocity) <= mVelocityThreshold) {
+                    mX = mTarget;
+                    mVelocity = 0;
+                    mMode = IDLE;
+                }
+            }
+            mLastTimeNanos = Math.max(mLastTimeNanos, frameTimeNanos);
+            return mMode != IDLE;
+        }
+
+        @Override
+        public int getPosition() {
+            return (int) Math.round(mX);
+        }
+
+        @Override
+        public int getFinalPosition() {
+            if (mMode == DECAY) {
+                return (int) Math.round(mStartX + mStartVelocity / mDecayFriction);
+            } else if (mMode == SPRING) {
+                return (int) Math.round(mTarget);
+            }
+            return getPosition();
+        }
+
+        /**
+         * A fling heading towards position keeps decaying, with the friction changed so that it comes
+         * to rest exactly there. Any other animation springs to position from its current velocity.
+         */
+        @Override
+        public boolean setFinalPosition(int position) {
+            final double distance = position - mX;
+            if (mMode == DECAY && distance != 0 && Math.signum(distance) == Math.signum(mVelocity)) {
+                startDecay(mX, mVelocity, mVelocity / distance, mLastTimeNanos);
+            } else if (mMode != IDLE || distance != 0) {
+                startSpring(position);
+            }
+            return true;
+        }
+
+        @Override
+        public void stop() {
+            mVelocity = 0;
+            mMode = IDLE;
+        }
+
+        @Override
+        public boolean isFinished() {
+            return mMode == IDLE;
+        }
+    }
+}
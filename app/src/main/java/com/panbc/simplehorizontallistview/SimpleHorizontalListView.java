@@ -1,31 +1,78 @@
 package com.panbc.simplehorizontallistview;
 
+import android.animation.Animator;
+import android.animation.AnimatorListenerAdapter;
+import android.animation.ValueAnimator;
 import android.content.Context;
+import android.content.res.TypedArray;
 import android.database.DataSetObserver;
-import android.graphics.Color;
+import android.graphics.Canvas;
 import android.graphics.Paint;
 import android.graphics.Rect;
+import android.os.Build;
+import android.os.Parcel;
 import android.os.Parcelable;
+import android.os.SystemClock;
+import android.support.v4.view.NestedScrollingChild;
+import android.support.v4.view.NestedScrollingChildHelper;
+import android.support.v4.view.ViewCompat;
 import android.util.AttributeSet;
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+import android.view.Choreographer;
+import android.view.Display;
 import android.view.GestureDetector;
 import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.VelocityTracker;
+import android.view.ViewConfiguration;
 import android.view.ViewParent;
+import android.view.animation.DecelerateInterpolator;
 import android.widget.AdapterView;
 import android.widget.ListAdapter;
 import android.widget.ListView;
-import android.widget.Scroller;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 /**
  * Created by panbc on 15/8/17.<br/>
- * SimpleHorizontalListView basically imitates the official {@link ListView} whereas it only horizontally layouts child views properly, lacking features like classifying
- * children by VIEW_TYPE
+ * SimpleHorizontalListView basically imitates the official {@link ListView} whereas it only horizontally layouts child views properly.
+ * Children are recycled per VIEW_TYPE as reported by {@link ListAdapter#getItemViewType(int)}
  */
-public class SimpleHorizontalListView extends AdapterView<ListAdapter> {
+public class SimpleHorizontalListView extends AdapterView<ListAdapter> implements NestedScrollingChild {
+
+    /**
+     * Least number of scrap views kept per view type when no limit was set with
+     * {@link #setMaxRecycledViews(int, int)}.
+     */
+    public static final int DEFAULT_MAX_SCRAP = 5;
+
+    private static final int SMOOTH_SCROLL_DURATION = 400;
+
+    public static final long DEFAULT_ITEM_ANIMATION_DURATION = 250;
+
+    /**
+     * Flings come to rest wherever they decay.
+     */
+    public static final int SNAP_NONE = 0;
+
+    /**
+     * Flings come to rest with an item aligned to the left padding.
+     */
+    public static final int SNAP_START = 1;
+
+    /**
+     * Flings come to rest with an item centered in the viewport.
+     */
+    public static final int SNAP_CENTER = 2;
+
+    /**
+     * Flings move one screen at most and come to rest with an item aligned to the left padding.
+     */
+    public static final int SNAP_PAGE = 3;
 
     private RecycleBin mRecycler = new RecycleBin();
 
@@ -54,18 +101,176 @@ public class SimpleHorizontalListView extends AdapterView<ListAdapter> {
 
     private int mHeightMeasureSpec;
 
-    private Paint mCenterPaint;
+    /**
+     * Height of this view at the last layout, children only need to be measured again when it changes.
+     */
+    private int mLayoutHeight = -1;
+
+    /**
+     * Measured item widths, null unless enabled by {@link #setItemWidthCacheEnabled(boolean)}.
+     */
+    private ItemWidthCache mWidthCache;
+
+    /**
+     * mAdapter if it implements {@link ItemWidthAdapter}, null otherwise.
+     */
+    private ItemWidthAdapter mItemWidthAdapter;
+
+    /**
+     * Width of every item in fixed width mode, 0 if items are measured.
+     */
+    private int mItemWidth;
+
+    /**
+     * Set to scroll by moving scrollX while the children keep their coordinates.
+     */
+    private boolean mViewportScrolling;
+
+    private int mSnapMode = SNAP_NONE;
+
+    /**
+     * Number of rows; items are laid out in columns of this many items, top to bottom.
+     */
+    private int mSpanCount = 1;
+
+    /**
+     * Set when the first item follows the last one again. Layout positions, i.e. mFirstPosition and
+     * the positions of the children, then count on across laps and are mapped to adapter positions
+     * by {@link #getAdapterPosition(int)}.
+     */
+    private boolean mCircular;
+
+    private final ArrayList<ItemDecoration> mItemDecorations = new ArrayList<ItemDecoration>();
+
+    /**
+     * Collects the offsets of one item from all decorations.
+     */
+    private final Rect mDecorRect = new Rect();
+
+    /**
+     * Animates item updates, null while item animations are disabled.
+     */
+    private ItemAnimation mItemAnimation;
+
+    private long mItemAnimationDuration = DEFAULT_ITEM_ANIMATION_DURATION;
+
+    private boolean mFlingLayersEnabled;
+
+    /**
+     * Set while children are drawn into hardware layers for a fling.
+     */
+    private boolean mFlingLayersActive;
+
+    /**
+     * State restored before there was anything to lay out, applied by the next layout pass.
+     */
+    private SavedState mPendingState;
+
+    /**
+     * Longest time spent looking for the restored first item by its stable id.
+     */
+    private static final int SYNC_MAX_DURATION_MILLIS = 100;
+
+    /**
+     * Prefix sums of item widths, built lazily when offsets of items with varying widths are needed.
+     */
+    private ItemOffsetIndex mOffsetIndex;
+
+    /**
+     * Set when the item count changed since mOffsetIndex was built.
+     */
+    private boolean mOffsetIndexInvalid;
 
     private boolean mShouldStopFling;
 
+    /**
+     * Only used to detect taps, scrolling is tracked by {@link #onTouchEvent(MotionEvent)}.
+     */
     private GestureDetector mGestureDetector;
 
+    private int mTouchSlop;
+
+    private int mMinimumVelocity;
+
+    private int mMaximumVelocity;
+
+    private VelocityTracker mVelocityTracker;
+
+    /**
+     * Copy of the down event of the current touch, passed to {@link #onFling}.
+     */
+    private MotionEvent mDownEvent;
+
+    private static final int INVALID_POINTER = -1;
+
+    private int mActivePointerId = INVALID_POINTER;
+
+    private int mInitialMotionX;
+
+    private int mInitialMotionY;
+
+    private int mLastMotionX;
+
+    /**
+     * True once horizontal motion passed the touch slop and dominates the vertical motion.
+     */
+    private boolean mIsBeingDragged;
+
+    /**
+     * How far nested scrolling parents moved this view during the current gesture.
+     */
+    private int mNestedXOffset;
+
+    private final int[] mScrollOffset = new int[2];
+
+    private final int[] mScrollConsumed = new int[2];
+
+    private NestedScrollingChildHelper mScrollingChildHelper;
+
     private FlingRunnable mFlingRunnable = new FlingRunnable();
 
     private OnItemClickListener mOnItemClicked;
 
     private OnScrollListener mOnScrollListener;
 
+    private OnScrollFrameListener mOnScrollFrameListener;
+
+    /**
+     * Counters of the current scroll, null while metrics are disabled.
+     */
+    private ScrollMetrics mMetrics;
+
+    private OnMetricsListener mOnMetricsListener;
+
+    /**
+     * Rect used for hit-testing taps, reused so that a tap does not allocate.
+     */
+    private Rect mTouchFrame;
+
+    private final PrefetchTask mPrefetchTask = new PrefetchTask();
+
+    /**
+     * mAdapter if it implements {@link PreparingAdapter}, null otherwise.
+     */
+    private PreparingAdapter mPreparingAdapter;
+
+    private ItemPreparer.Preparation mPreparation;
+
+    /**
+     * Prepares items on the executor set by {@link #setPrepareExecutor(Executor)}, null if none is set.
+     */
+    private ItemPreparer mPreparer;
+
+    /**
+     * Delivers prepared results on the UI thread.
+     */
+    private final Executor mUiThreadExecutor = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            post(command);
+        }
+    };
+
     public SimpleHorizontalListView(Context context) {
         super(context);
         initMyGallery();
@@ -73,19 +278,83 @@ public class SimpleHorizontalListView extends AdapterView<ListAdapter> {
 
     public SimpleHorizontalListView(Context context, AttributeSet attrs) {
         this(context, attrs, 0);
-        initMyGallery();
     }
 
     public SimpleHorizontalListView(Context context, AttributeSet attrs, int defStyle) {
         super(context, attrs, defStyle);
+        TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.SimpleHorizontalListView, defStyle, 0);
+        mItemWidth = a.getDimensionPixelSize(R.styleable.SimpleHorizontalListView_itemWidth, 0);
+        mSnapMode = a.getInt(R.styleable.SimpleHorizontalListView_snapMode, SNAP_NONE);
+        mSpanCount = Math.max(1, a.getInt(R.styleable.SimpleHorizontalListView_spanCount, 1));
+        mCircular = a.getBoolean(R.styleable.SimpleHorizontalListView_circular, false);
+        a.recycle();
         initMyGallery();
     }
 
+    /**
+     * Binds and measures up to count items beyond the edge the list is scrolling towards, in the idle
+     * time left after a frame is drawn. Items are bound with {@link ListAdapter#getView} as usual and
+     * handed out when they scroll into view, so that frame does no adapter work for them.
+     *
+     * @param count number of items to prepare ahead, 0 to turn prefetching off
+     */
+    public void setPrefetchItemCount(int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Prefetch item count must not be negative: " + count);
+        }
+        mPrefetchTask.mPrefetchCount = count;
+        if (count == 0) {
+            mPrefetchTask.cancel();
+        }
+    }
+
+    public int getPrefetchItemCount() {
+        return mPrefetchTask.mPrefetchCount;
+    }
+
+    /**
+     * @return the number of items that scrolled into view already prefetched
+     */
+    public int getPrefetchHitCount() {
+        return mPrefetchTask.mHitCount;
+    }
+
+    /**
+     * @return the number of items that had to be bound while scrolling although prefetching is on
+     */
+    public int getPrefetchMissCount() {
+        return mPrefetchTask.mMissCount;
+    }
+
+    /**
+     * Sets the executor {@link PreparingAdapter#prepareItem(int)} runs on. Items are prepared up to
+     * one screen ahead of the visible ones, and everything pending is cancelled when the data set
+     * changes. Has no effect unless the adapter implements {@link PreparingAdapter}.
+     *
+     * @param executor a worker executor, or null to bind items without preparing them ahead
+     */
+    public void setPrepareExecutor(Executor executor) {
+        if (mPreparer != null) {
+            mPreparer.cancelAll();
+        }
+        mPreparer = executor == null ? null : new ItemPreparer(executor, mUiThreadExecutor);
+        prepareAhead(0);
+    }
+
     @Override
     public ListAdapter getAdapter() {
         return mAdapter;
     }
 
+    /**
+     * @return the number of items the list currently shows, AdapterView's own count is never set
+     * since the list lays out its children itself
+     */
+    @Override
+    public int getCount() {
+        return mItemCount;
+    }
+
 
     @Override
     public void setOnItemClickListener(OnItemClickListener listener) {
@@ -94,454 +363,2659 @@ public class SimpleHorizontalListView extends AdapterView<ListAdapter> {
 
     @Override
     public void setAdapter(ListAdapter adapter) {
+        endItemAnimations();
         if (mAdapter != null) {
             mAdapter.unregisterDataSetObserver(mDataObserver);
         }
+        mPrefetchTask.cancel();
+        if (mRecycler.mViewPool != null) {
+            // the children can serve the next adapter or another list sharing the pool
+            final int childCount = getChildCount();
+            for (int i = 0; i < childCount; i++) {
+                mRecycler.addScrapView(getChildAt(i), mFirstPosition + i);
+            }
+            detachAllViewsFromParent();
+        }
+        mRecycler.clear();
         mAdapter = adapter;
-        mAdapter.registerDataSetObserver(mDataObserver);
         if (mAdapter != null) {
+            mAdapter.registerDataSetObserver(mDataObserver);
             mItemCount = mAdapter.getCount();
+            mRecycler.setViewTypeCount(mAdapter.getViewTypeCount());
+        } else {
+            mItemCount = 0;
+        }
+        if (mPreparer != null) {
+            mPreparer.cancelAll();
+        }
+        mItemWidthAdapter = adapter instanceof ItemWidthAdapter ? (ItemWidthAdapter) adapter : null;
+        if (adapter instanceof PreparingAdapter) {
+            final PreparingAdapter preparingAdapter = (PreparingAdapter) adapter;
+            mPreparingAdapter = preparingAdapter;
+            mPreparation = new ItemPreparer.Preparation() {
+                @Override
+                public Object prepare(int position) {
+                    // a data change cancels all preparations before the item count changes
+                    return preparingAdapter.prepareItem(getAdapterPosition(position));
+                }
+            };
+        } else {
+            mPreparingAdapter = null;
+            mPreparation = null;
+        }
+        if (mWidthCache != null) {
+            mWidthCache.clear();
         }
+        mOffsetIndexInvalid = true;
         reset();
     }
 
+    /**
+     * Called once from the constructors.
+     */
     private void initMyGallery() {
-        mCenterPaint = new Paint();
-        mCenterPaint.setColor(Color.YELLOW);
         mGestureDetector = new GestureDetector(getContext(), mOnGestureListener);
-        bindGestureDetector();
+        final ViewConfiguration configuration = ViewConfiguration.get(getContext());
+        mTouchSlop = configuration.getScaledTouchSlop();
+        mMinimumVelocity = configuration.getScaledMinimumFlingVelocity();
+        mMaximumVelocity = configuration.getScaledMaximumFlingVelocity();
+        setNestedScrollingEnabled(true);
         setWillNotDraw(false);
     }
 
-    private void bindGestureDetector() {
-        // Generic touch listener that can be applied to any view that needs to process gestures
-        final OnTouchListener gestureListenerHandler = new OnTouchListener() {
-            @Override
-            public boolean onTouch(final View v, final MotionEvent event) {
-                // Delegate the touch event to our gesture detector
-                return mGestureDetector.onTouchEvent(event);
+    @Override
+    public boolean onInterceptTouchEvent(MotionEvent ev) {
+        final int action = ev.getActionMasked();
+        if (action == MotionEvent.ACTION_MOVE && mIsBeingDragged) {
+            return true;
+        }
+        switch (action) {
+            case MotionEvent.ACTION_DOWN:
+                onTouchDown(ev);
+                break;
+            case MotionEvent.ACTION_MOVE:
+                trackVelocity(ev);
+                startDraggingIfHorizontal(ev);
+                break;
+            case MotionEvent.ACTION_POINTER_UP:
+                onSecondaryPointerUp(ev);
+                break;
+            case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_CANCEL:
+                resetTouch();
+                break;
+        }
+        return mIsBeingDragged;
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent ev) {
+        mGestureDetector.onTouchEvent(ev);
+        switch (ev.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                onTouchDown(ev);
+                break;
+            case MotionEvent.ACTION_POINTER_DOWN: {
+                trackVelocity(ev);
+                final int index = ev.getActionIndex();
+                mActivePointerId = ev.getPointerId(index);
+                mLastMotionX = (int) (ev.getX(index) + 0.5f);
+                break;
             }
-        };
+            case MotionEvent.ACTION_MOVE: {
+                trackVelocity(ev);
+                final int index = ev.findPointerIndex(mActivePointerId);
+                if (index < 0) {
+                    break;
+                }
+                if (!mIsBeingDragged) {
+                    startDraggingIfHorizontal(ev);
+                }
+                if (mIsBeingDragged) {
+                    onTouchDrag((int) (ev.getX(index) + 0.5f));
+                }
+                break;
+            }
+            case MotionEvent.ACTION_POINTER_UP:
+                trackVelocity(ev);
+                onSecondaryPointerUp(ev);
+                break;
+            case MotionEvent.ACTION_UP:
+                trackVelocity(ev);
+                if (mIsBeingDragged) {
+                    mVelocityTracker.computeCurrentVelocity(1000, mMaximumVelocity);
+                    if (onFling(mDownEvent, ev, mVelocityTracker.getXVelocity(mActivePointerId),
+                            mVelocityTracker.getYVelocity(mActivePointerId))) {
+                        // flinging
+                    } else if (mSnapMode != SNAP_NONE && getChildCount() > 0) {
+                        mFlingRunnable.startSnap(0);
+                    } else {
+                        reportMetrics();
+                    }
+                }
+                resetTouch();
+                break;
+            case MotionEvent.ACTION_CANCEL:
+                if (mIsBeingDragged) {
+                    reportMetrics();
+                }
+                resetTouch();
+                break;
+        }
+        return true;
+    }
 
-        setOnTouchListener(gestureListenerHandler);
+    private void onTouchDown(MotionEvent ev) {
+        mNestedXOffset = 0;
+        trackVelocity(ev);
+        mActivePointerId = ev.getPointerId(0);
+        mInitialMotionX = mLastMotionX = (int) (ev.getX() + 0.5f);
+        mInitialMotionY = (int) (ev.getY() + 0.5f);
+        if (mDownEvent != null) {
+            mDownEvent.recycle();
+        }
+        mDownEvent = MotionEvent.obtain(ev);
+        // catching a running fling continues the drag without waiting for the touch slop. Both
+        // onInterceptTouchEvent and onTouchEvent may see the same down event.
+        mIsBeingDragged |= mFlingRunnable.isRunning();
+        mFlingRunnable.stop();
+        if (mIsBeingDragged) {
+            requestParentDisallowInterceptTouchEvent();
+        }
+        startNestedScroll(ViewCompat.SCROLL_AXIS_HORIZONTAL);
     }
 
-    public void setFirstPosition(int position) {
-        mFirstPosition = position;
+    /**
+     * Starts dragging once the horizontal motion passed the touch slop and exceeds the vertical
+     * motion. Only then is the parent kept from intercepting, so vertical gestures still scroll a
+     * vertical parent.
+     */
+    private void startDraggingIfHorizontal(MotionEvent ev) {
+        final int index = ev.findPointerIndex(mActivePointerId);
+        if (index < 0) {
+            return;
+        }
+        final int dx = (int) (ev.getX(index) + 0.5f) - mInitialMotionX;
+        final int dy = (int) (ev.getY(index) + 0.5f) - mInitialMotionY;
+        if (Math.abs(dx) > mTouchSlop && Math.abs(dx) > Math.abs(dy)) {
+            mIsBeingDragged = true;
+            // start scrolling from the slop boundary so that the items don't jump
+            mLastMotionX = mInitialMotionX + (dx > 0 ? mTouchSlop : -mTouchSlop);
+            requestParentDisallowInterceptTouchEvent();
+        }
     }
 
+    private void requestParentDisallowInterceptTouchEvent() {
+        final ViewParent parent = getParent();
+        if (parent != null) {
+            parent.requestDisallowInterceptTouchEvent(true);
+        }
+    }
 
-    public void setFirstItemLeft(int left) {
-        mFirstItemLeft = left;
+    /**
+     * Scrolls by the finger movement since the last event, offering it to nested scrolling parents
+     * before and after the items have scrolled.
+     */
+    private void onTouchDrag(int x) {
+        // distance in the nested scrolling convention, positive values reveal items to the right
+        int dx = mLastMotionX - x;
+        if (dispatchNestedPreScroll(dx, 0, mScrollConsumed, mScrollOffset)) {
+            dx -= mScrollConsumed[0];
+            mNestedXOffset += mScrollOffset[0];
+        }
+        mLastMotionX = x - mScrollOffset[0];
+        if (dx != 0 && getChildCount() > 0) {
+            final int consumed = -scrollItems(-dx, true);
+            invalidate();
+            if (dispatchNestedScroll(consumed, 0, dx - consumed, 0, mScrollOffset)) {
+                mLastMotionX -= mScrollOffset[0];
+                mNestedXOffset += mScrollOffset[0];
+            }
+        }
     }
 
+    private void onSecondaryPointerUp(MotionEvent ev) {
+        final int index = ev.getActionIndex();
+        if (ev.getPointerId(index) == mActivePointerId) {
+            // This was our active pointer going up. Choose a new active pointer.
+            final int newIndex = index == 0 ? 1 : 0;
+            mActivePointerId = ev.getPointerId(newIndex);
+            mLastMotionX = (int) (ev.getX(newIndex) + 0.5f);
+            if (mVelocityTracker != null) {
+                mVelocityTracker.clear();
+            }
+        }
+    }
 
-    private synchronized void reset() {
-        initMyGallery();
-        removeAllViewsInLayout();
-        invalidate();
+    /**
+     * Adds ev to the velocity tracker in screen stable coordinates, i.e. without the distance nested
+     * scrolling parents moved this view.
+     */
+    private void trackVelocity(MotionEvent ev) {
+        if (mVelocityTracker == null) {
+            mVelocityTracker = VelocityTracker.obtain();
+        }
+        ev.offsetLocation(mNestedXOffset, 0);
+        mVelocityTracker.addMovement(ev);
+        ev.offsetLocation(-mNestedXOffset, 0);
+    }
+
+    private void resetTouch() {
+        mIsBeingDragged = false;
+        mActivePointerId = INVALID_POINTER;
+        if (mVelocityTracker != null) {
+            mVelocityTracker.recycle();
+            mVelocityTracker = null;
+        }
+        if (mDownEvent != null) {
+            mDownEvent.recycle();
+            mDownEvent = null;
+        }
+        stopNestedScroll();
+    }
+
+    /**
+     * Called when a drag ends, with the velocity of the finger as GestureDetector reports it. Flings
+     * the items through {@link #fling(int)}; override to change or veto the fling.
+     *
+     * @param e1 the down event that started the touch, null if the view didn't see it
+     * @param e2 the up event that ended the drag
+     * @return true if the items are flinging
+     */
+    protected boolean onFling(MotionEvent e1, MotionEvent e2, float velocityX, float velocityY) {
+        // the finger moving left reveals items to the right
+        return fling((int) -velocityX);
     }
 
+    /**
+     * Flings the items unless a nested scrolling parent consumes the fling.
+     *
+     * @param velocityX pixels per second, positive values reveal items to the right
+     * @return true if the items are flinging
+     */
+    public boolean fling(int velocityX) {
+        if (Math.abs(velocityX) < mMinimumVelocity) {
+            return false;
+        }
+        velocityX = Math.max(-mMaximumVelocity, Math.min(velocityX, mMaximumVelocity));
+        if (dispatchNestedPreFling(velocityX, 0)) {
+            return false;
+        }
+        final boolean canScroll = canScrollHorizontally(velocityX);
+        dispatchNestedFling(velocityX, 0, canScroll);
+        if (canScroll) {
+            if (mSnapMode != SNAP_NONE) {
+                mFlingRunnable.startSnap(velocityX);
+            } else {
+                mFlingRunnable.startUsingVelocity(velocityX);
+            }
+        }
+        return canScroll;
+    }
 
     @Override
-    public void requestLayout() {
-        if (!mBlockLayoutRequests && !mInLayout) {
-            super.requestLayout();
+    public boolean canScrollHorizontally(int direction) {
+        final int childCount = getChildCount();
+        if (childCount == 0) {
+            return false;
+        }
+        if (mCircular) {
+            return direction != 0;
+        }
+        if (direction > 0) {
+            return mFirstPosition + childCount < mItemCount
+                    || getDecoratedRight(getChildAt(childCount - 1)) > getViewportRight();
+        } else if (direction < 0) {
+            return mFirstPosition > 0 || getDecoratedLeft(getChildAt(0)) < getViewportLeft();
+        }
+        return false;
+    }
+
+    private NestedScrollingChildHelper getScrollingChildHelper() {
+        // created lazily as the View constructor may already call setNestedScrollingEnabled
+        if (mScrollingChildHelper == null) {
+            mScrollingChildHelper = new NestedScrollingChildHelper(this);
         }
+        return mScrollingChildHelper;
     }
 
     @Override
-    public View getSelectedView() {
-        return null;
+    public void setNestedScrollingEnabled(boolean enabled) {
+        getScrollingChildHelper().setNestedScrollingEnabled(enabled);
     }
 
     @Override
-    public void setSelection(int position) {
-        //// TODO: 16/3/3
+    public boolean isNestedScrollingEnabled() {
+        return getScrollingChildHelper().isNestedScrollingEnabled();
     }
 
     @Override
-    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
-        // Sets up mListPadding
-        super.onMeasure(widthMeasureSpec, heightMeasureSpec);
-        mHeightMeasureSpec = heightMeasureSpec;
+    public boolean startNestedScroll(int axes) {
+        return getScrollingChildHelper().startNestedScroll(axes);
     }
 
     @Override
-    protected void onLayout(boolean changed, int l, int t, int r, int b) {
-        super.onLayout(changed, l, t, r, b);
-        if (mItemCount == 0) {
-            reset();
-            return;
-        }
-        mInLayout = true;
-        if (changed) {
-            int childCount = getChildCount();
-            for (int i = 0; i < childCount; i++) {
-                getChildAt(i).forceLayout();
-            }
-        }
-        fillList();
-        mFirstItemLeft = getChildAt(0).getLeft();
-        mInLayout = false;
+    public void stopNestedScroll() {
+        getScrollingChildHelper().stopNestedScroll();
+    }
 
+    @Override
+    public boolean hasNestedScrollingParent() {
+        return getScrollingChildHelper().hasNestedScrollingParent();
     }
 
-    private void fillList() {
-        final int childCount = getChildCount();
-        final boolean dataChanged = mDataChanged;
-        if (dataChanged) {
-            for (int i = 0; i < childCount; i++) {
-                mRecycler.addScrapView(getChildAt(i), mFirstPosition + i);
-            }
+    @Override
+    public boolean dispatchNestedScroll(int dxConsumed, int dyConsumed, int dxUnconsumed, int dyUnconsumed,
+                                        int[] offsetInWindow) {
+        return getScrollingChildHelper().dispatchNestedScroll(dxConsumed, dyConsumed, dxUnconsumed,
+                dyUnconsumed, offsetInWindow);
+    }
+
+    @Override
+    public boolean dispatchNestedPreScroll(int dx, int dy, int[] consumed, int[] offsetInWindow) {
+        return getScrollingChildHelper().dispatchNestedPreScroll(dx, dy, consumed, offsetInWindow);
+    }
+
+    @Override
+    public boolean dispatchNestedFling(float velocityX, float velocityY, boolean consumed) {
+        return getScrollingChildHelper().dispatchNestedFling(velocityX, velocityY, consumed);
+    }
+
+    @Override
+    public boolean dispatchNestedPreFling(float velocityX, float velocityY) {
+        return getScrollingChildHelper().dispatchNestedPreFling(velocityX, velocityY);
+    }
+
+    public void setFirstPosition(int position) {
+        mFirstPosition = position;
+    }
+
+
+    public void setFirstItemLeft(int left) {
+        mFirstItemLeft = left;
+    }
+
+    /**
+     * Switches to fixed width mode, in which every item is exactly width pixels wide. Item offsets
+     * are then computed arithmetically, so {@link #setSelection(int)},
+     * {@link #smoothScrollToPosition(int)} and {@link #getPositionForOffset(int)} don't depend on how
+     * far the target is.
+     *
+     * @param width the width of every item in pixels, or 0 to measure items again
+     */
+    public void setItemWidth(int width) {
+        if (width < 0) {
+            throw new IllegalArgumentException("Item width must not be negative: " + width);
+        }
+        if (mItemWidth != width) {
+            mItemWidth = width;
+            for (int i = 0; i < getChildCount(); i++) {
+                getChildAt(i).forceLayout();
+            }
+            mRecycler.markChildrenDirty();
+            requestLayout();
+        }
+    }
+
+    public int getItemWidth() {
+        return mItemWidth;
+    }
+
+    /**
+     * Lays items out in spanCount rows that scroll together: each column holds spanCount consecutive
+     * items stacked top to bottom, each row gets an equal share of the height and the items of a
+     * column are as wide as its widest item. Offsets, snapping and the fixed item width then apply to
+     * columns. Item updates other than {@link android.widget.BaseAdapter#notifyDataSetChanged()}
+     * cause a full layout in this mode, as every column behind an insert or remove changes.
+     */
+    public void setSpanCount(int spanCount) {
+        if (spanCount < 1) {
+            throw new IllegalArgumentException("Span count must be at least 1: " + spanCount);
+        }
+        if (mSpanCount != spanCount) {
+            mSpanCount = spanCount;
+            for (int i = 0; i < getChildCount(); i++) {
+                getChildAt(i).forceLayout();
+            }
+            mRecycler.markChildrenDirty();
+            mOffsetIndexInvalid = true;
+            requestLayout();
+        }
+    }
+
+    public int getSpanCount() {
+        return mSpanCount;
+    }
+
+    /**
+     * Lets the first item follow the last one again, so that the list scrolls without end in both
+     * directions, e.g. for a looping banner. Positions are wrapped as children are laid out, so the
+     * adapter reports its real item count and views are recycled by their real adapter position,
+     * lap after lap. Snapping and smooth scrolling take the nearest way around. With several rows the
+     * item count should be a multiple of the span count, otherwise columns shift by the remainder
+     * every lap. Item updates other than {@link android.widget.BaseAdapter#notifyDataSetChanged()}
+     * cause a full layout in this mode.
+     */
+    public void setCircular(boolean circular) {
+        if (mCircular != circular) {
+            mFirstPosition = getAdapterPosition(mFirstPosition);
+            mCircular = circular;
+            mFlingRunnable.stop();
+            mDataChanged = true;
+            requestLayout();
+        }
+    }
+
+    public boolean isCircular() {
+        return mCircular;
+    }
+
+    /**
+     * @return the adapter position shown at a layout position, which differ only in circular mode
+     */
+    private int getAdapterPosition(int layoutPosition) {
+        if (!mCircular || mItemCount == 0) {
+            return layoutPosition;
+        }
+        final int position = layoutPosition % mItemCount;
+        return position < 0 ? position + mItemCount : position;
+    }
+
+    /**
+     * @return the distance from the left edge of the first item in lap 0 to the left edge of the
+     * item at a layout position, negative for laps before it in circular mode
+     */
+    private int getLayoutOffset(int layoutPosition) {
+        if (!mCircular) {
+            return getOffsetForPosition(layoutPosition);
+        }
+        final int position = getAdapterPosition(layoutPosition);
+        final int lap = (layoutPosition - position) / Math.max(1, mItemCount);
+        return lap * getTotalItemWidth() + getOffsetForPosition(position);
+    }
+
+    /**
+     * @return the layout position of the item at a distance from the left edge of the first item in
+     * lap 0, the reverse of {@link #getLayoutOffset(int)}
+     */
+    private int getLayoutPosition(int offset) {
+        if (!mCircular) {
+            return getPositionForOffset(offset);
+        }
+        final int lapWidth = Math.max(1, getTotalItemWidth());
+        int lap = offset / lapWidth;
+        if (offset % lapWidth < 0) {
+            lap--;
+        }
+        return lap * mItemCount + getPositionForOffset(offset - lap * lapWidth);
+    }
+
+    /**
+     * @return the number of columns the items take, the number of items unless there are several rows
+     */
+    private int getColumnCount() {
+        return (mItemCount + mSpanCount - 1) / mSpanCount;
+    }
+
+    private int getRowHeight() {
+        return (MeasureSpec.getSize(mHeightMeasureSpec) - getPaddingTop() - getPaddingBottom()) / mSpanCount;
+    }
+
+    /**
+     * Scrolls by moving the view's scrollX instead of offsetting every child, so that a scroll step
+     * costs the same however many items are on screen and the children need not be invalidated.
+     * Children then keep their coordinates while they are attached; each layout pass starts from
+     * scrollX 0 again.
+     */
+    public void setViewportScrollingEnabled(boolean enabled) {
+        if (mViewportScrolling != enabled) {
+            mViewportScrolling = enabled;
+            requestLayout();
+        }
+    }
+
+    public boolean isViewportScrollingEnabled() {
+        return mViewportScrolling;
+    }
+
+    /**
+     * Makes flings and drags settle on item boundaries. The target item is chosen from the fling's
+     * velocity before it starts, and the fling is then planned to end exactly there, so it neither
+     * overshoots nor needs a second scroll. A drag released too slowly to fling settles on the
+     * nearest target.
+     *
+     * @param snapMode one of {@link #SNAP_NONE}, {@link #SNAP_START}, {@link #SNAP_CENTER} and
+     *                 {@link #SNAP_PAGE}
+     */
+    public void setSnapMode(int snapMode) {
+        if (snapMode < SNAP_NONE || snapMode > SNAP_PAGE) {
+            throw new IllegalArgumentException("Unknown snap mode: " + snapMode);
+        }
+        mSnapMode = snapMode;
+    }
+
+    public int getSnapMode() {
+        return mSnapMode;
+    }
+
+    /**
+     * Draws the children into hardware layers while a fling or smooth scroll runs, so that its frames
+     * only composite the layers instead of redrawing every child. Children that already have a layer
+     * type keep it, and the layers are dropped as soon as the list comes to rest or a child is
+     * scrapped. Only worth it for children that don't change while flinging, and only on hardware
+     * accelerated windows.
+     */
+    public void setHardwareLayersDuringFling(boolean enabled) {
+        mFlingLayersEnabled = enabled;
+        if (!enabled && mFlingLayersActive) {
+            setFlingLayersActive(false);
+        }
+    }
+
+    public boolean isHardwareLayersDuringFling() {
+        return mFlingLayersEnabled;
+    }
+
+    /**
+     * Animates the updates reported by {@link #notifyItemRangeInserted(int, int)},
+     * {@link #notifyItemRangeRemoved(int, int)}, {@link #notifyItemMoved(int, int)} and
+     * {@link #notifyItemRangeChanged(int, int)}: children slide from where they were to where the
+     * update put them, inserted items fade in and removed ones fade out. Removed views go to the scrap
+     * heap once their animation ended. Before Jelly Bean MR2 removed views are scrapped right away,
+     * only the remaining children move. {@link android.widget.BaseAdapter#notifyDataSetChanged()}
+     * is never animated.
+     */
+    public void setItemAnimationsEnabled(boolean enabled) {
+        if (enabled && mItemAnimation == null) {
+            mItemAnimation = new ItemAnimation();
+        } else if (!enabled && mItemAnimation != null) {
+            mItemAnimation.end();
+            mItemAnimation = null;
+        }
+    }
+
+    public boolean isItemAnimationsEnabled() {
+        return mItemAnimation != null;
+    }
+
+    public void setItemAnimationDuration(long duration) {
+        mItemAnimationDuration = duration;
+    }
+
+    public long getItemAnimationDuration() {
+        return mItemAnimationDuration;
+    }
+
+    /**
+     * Jumps to the end of running item animations, moving removed views to the scrap heap.
+     */
+    public void endItemAnimations() {
+        if (mItemAnimation != null) {
+            mItemAnimation.end();
+        }
+    }
+
+    private void setFlingLayersActive(boolean active) {
+        mFlingLayersActive = active;
+        for (int i = getChildCount() - 1; i >= 0; i--) {
+            if (active) {
+                addFlingLayer(getChildAt(i));
+            } else {
+                removeFlingLayer(getChildAt(i));
+            }
+        }
+    }
+
+    /**
+     * Adds a decoration that offsets and draws around items, e.g. a {@link DividerDecoration}.
+     * Decorations are drawn in the order they were added.
+     */
+    public void addItemDecoration(ItemDecoration decoration) {
+        mItemDecorations.add(decoration);
+        invalidateItemDecorations();
+    }
+
+    public void removeItemDecoration(ItemDecoration decoration) {
+        if (mItemDecorations.remove(decoration)) {
+            invalidateItemDecorations();
+        }
+    }
+
+    public int getItemDecorationCount() {
+        return mItemDecorations.size();
+    }
+
+    /**
+     * Asks all decorations for the offsets of every item again on the next layout pass.
+     */
+    public void invalidateItemDecorations() {
+        for (int i = 0; i < getChildCount(); i++) {
+            getChildAt(i).forceLayout();
+        }
+        mRecycler.markChildrenDirty();
+        // the offset index keeps the widths it knows, items report their new width when laid out again
+        requestLayout();
+    }
+
+    /**
+     * @return the left edge of the space child takes, including the offsets of decorations
+     */
+    public int getDecoratedLeft(View child) {
+        return child.getLeft() - ((LayoutParams) child.getLayoutParams()).decorInsets.left;
+    }
+
+    /**
+     * @return the right edge of the space child takes, including the offsets of decorations
+     */
+    public int getDecoratedRight(View child) {
+        return child.getRight() + ((LayoutParams) child.getLayoutParams()).decorInsets.right;
+    }
+
+    private int getDecoratedMeasuredWidth(View child) {
+        final Rect insets = ((LayoutParams) child.getLayoutParams()).decorInsets;
+        return insets.left + child.getMeasuredWidth() + insets.right;
+    }
+
+    /**
+     * Asks the decorations for the offsets of the item at position.
+     *
+     * @return true if they differ from the offsets the child had so far
+     */
+    private boolean updateDecorInsets(int position, LayoutParams lp) {
+        final Rect insets = lp.decorInsets;
+        final int count = mItemDecorations.size();
+        if (count == 0) {
+            if (insets.left == 0 && insets.top == 0 && insets.right == 0 && insets.bottom == 0) {
+                return false;
+            }
+            insets.setEmpty();
+            return true;
+        }
+        int left = 0;
+        int top = 0;
+        int right = 0;
+        int bottom = 0;
+        final Rect rect = mDecorRect;
+        for (int i = 0; i < count; i++) {
+            rect.setEmpty();
+            mItemDecorations.get(i).getItemOffsets(rect, position, this);
+            left += rect.left;
+            top += rect.top;
+            right += rect.right;
+            bottom += rect.bottom;
+        }
+        if (insets.left == left && insets.top == top && insets.right == right && insets.bottom == bottom) {
+            return false;
+        }
+        insets.set(left, top, right, bottom);
+        return true;
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        final int count = mItemDecorations.size();
+        for (int i = 0; i < count; i++) {
+            mItemDecorations.get(i).onDraw(canvas, this);
+        }
+    }
+
+    @Override
+    protected void dispatchDraw(Canvas canvas) {
+        super.dispatchDraw(canvas);
+        final int count = mItemDecorations.size();
+        for (int i = 0; i < count; i++) {
+            mItemDecorations.get(i).onDrawOver(canvas, this);
+        }
+    }
+
+    private void addFlingLayer(View child) {
+        final LayoutParams lp = (LayoutParams) child.getLayoutParams();
+        if (!lp.flingLayer && child.getLayerType() == LAYER_TYPE_NONE) {
+            lp.flingLayer = true;
+            child.setLayerType(LAYER_TYPE_HARDWARE, null);
+        }
+    }
+
+    private void removeFlingLayer(View child) {
+        final LayoutParams lp = (LayoutParams) child.getLayoutParams();
+        if (lp != null && lp.flingLayer) {
+            lp.flingLayer = false;
+            child.setLayerType(LAYER_TYPE_NONE, null);
+        }
+    }
+
+    /**
+     * Remembers the measured width of every item, keyed by stable id when the adapter has stable ids
+     * and by position otherwise. A view bound to an item again is then measured with that exact width,
+     * which is much cheaper than an UNSPECIFIED measure for text-heavy items. The cache is dropped
+     * whenever the adapter reports a data set change.
+     */
+    public void setItemWidthCacheEnabled(boolean enabled) {
+        if (enabled && mWidthCache == null) {
+            mWidthCache = new ItemWidthCache();
+        } else if (!enabled) {
+            mWidthCache = null;
+        }
+    }
+
+
+    private void reset() {
+        endItemAnimations();
+        removeAllViewsInLayout();
+        invalidate();
+    }
+
+
+    @Override
+    public void requestLayout() {
+        if (!mBlockLayoutRequests && !mInLayout) {
+            super.requestLayout();
+        }
+    }
+
+    @Override
+    public View getSelectedView() {
+        return null;
+    }
+
+    /**
+     * Shows position as the first item, aligned to the left padding. Only the items that end up
+     * visible are bound; near the end of the list the items are shifted so that no space is left.
+     */
+    @Override
+    public void setSelection(int position) {
+        if (mAdapter == null || mItemCount == 0) {
+            return;
+        }
+        mFlingRunnable.stop();
+        jumpTo(Math.max(0, Math.min(position, mItemCount - 1)), getPaddingLeft());
+    }
+
+    /**
+     * @return the adapter position of the first child
+     */
+    @Override
+    public int getFirstVisiblePosition() {
+        return getAdapterPosition(mFirstPosition);
+    }
+
+    /**
+     * @return the adapter position of the last child, which comes before the first visible
+     * position in circular mode while the end of the data is in view
+     */
+    @Override
+    public int getLastVisiblePosition() {
+        return getAdapterPosition(mFirstPosition + getChildCount() - 1);
+    }
+
+    /**
+     * Scrolls until position is the first item. A far away target is jumped to first, so that only
+     * the last screen is animated and bound. Without fixed item widths the distance to items that
+     * were never measured is estimated from the offset index.
+     */
+    public void smoothScrollToPosition(int position) {
+        if (mAdapter == null || mItemCount == 0 || getChildCount() == 0) {
+            return;
+        }
+        position = Math.max(0, Math.min(position, mItemCount - 1));
+        if (mCircular) {
+            // the nearest way around, at most half a lap
+            final int lapWidth = Math.max(1, getTotalItemWidth());
+            int distance = (getOffsetForPosition(position) - getCurrentOffset()) % lapWidth;
+            if (distance > lapWidth / 2) {
+                distance -= lapWidth;
+            } else if (distance < -lapWidth / 2) {
+                distance += lapWidth;
+            }
+            mFlingRunnable.startScroll(distance, SMOOTH_SCROLL_DURATION);
+            return;
+        }
+        final int viewport = getWidth() - getPaddingLeft() - getPaddingRight();
+        final int maxOffset = Math.max(0, getTotalItemWidth() - viewport);
+        if (!isVisiblePosition(position)) {
+            final int target = Math.min(getOffsetForPosition(position), maxOffset);
+            final int distance = target - getCurrentOffset();
+            if (Math.abs(distance) > 2 * viewport) {
+                // land one screen away from the target, then animate the rest
+                final int start = distance > 0 ? target - viewport : target + viewport;
+                final int startPosition = getPositionForOffset(start);
+                jumpTo(startPosition, getPaddingLeft() - (start - getOffsetForPosition(startPosition)));
+            }
+        }
+        final int distance;
+        if (isVisiblePosition(position)) {
+            distance = getDecoratedLeft(getChildAt(position - mFirstPosition)) - getViewportLeft();
+        } else {
+            distance = Math.min(getOffsetForPosition(position), maxOffset) - getCurrentOffset();
+        }
+        mFlingRunnable.startScroll(distance, SMOOTH_SCROLL_DURATION);
+    }
+
+    private boolean isVisiblePosition(int position) {
+        return position >= mFirstPosition && position < mFirstPosition + getChildCount();
+    }
+
+    /**
+     * Looks up the item at an absolute offset, in O(1) in fixed width mode and in O(log n) otherwise.
+     *
+     * @param offset distance in pixels from the left edge of the first item
+     * @return the position of the item covering offset, {@link #INVALID_POSITION} if there are no items
+     */
+    public int getPositionForOffset(int offset) {
+        if (mItemCount == 0) {
+            return INVALID_POSITION;
+        }
+        if (mItemWidth > 0) {
+            return Math.max(0, Math.min(offset / mItemWidth, getColumnCount() - 1)) * mSpanCount;
+        }
+        return getOffsetIndex().getPosition(offset) * mSpanCount;
+    }
+
+    /**
+     * @return the distance in pixels from the left edge of the first item to the left edge of
+     * position. Widths of items that were never laid out are estimated.
+     */
+    public int getOffsetForPosition(int position) {
+        if (mItemWidth > 0) {
+            return position / mSpanCount * mItemWidth;
+        }
+        return (int) Math.min(getOffsetIndex().getOffset(position / mSpanCount), Integer.MAX_VALUE);
+    }
+
+    private int getTotalItemWidth() {
+        if (mItemWidth > 0) {
+            return getColumnCount() * mItemWidth;
+        }
+        return (int) Math.min(getOffsetIndex().getTotalWidth(), Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return the distance in pixels the content has been scrolled from its start
+     */
+    private int getCurrentOffset() {
+        if (getChildCount() == 0) {
+            return 0;
+        }
+        return getLayoutOffset(mFirstPosition) + getViewportLeft() - getDecoratedLeft(getChildAt(0));
+    }
+
+    /**
+     * @return the scroll offset at which position is snapped in the current snap mode
+     */
+    private int getSnapOffset(int position) {
+        final int viewport = getWidth() - getPaddingLeft() - getPaddingRight();
+        int offset = getLayoutOffset(position);
+        if (mSnapMode == SNAP_CENTER) {
+            final int width = getLayoutOffset(position + mSpanCount) - offset;
+            offset -= (viewport - width) / 2;
+        }
+        if (mCircular) {
+            return offset;
+        }
+        return Math.max(0, Math.min(offset, getTotalItemWidth() - viewport));
+    }
+
+    /**
+     * @param current   the current scroll offset
+     * @param landing   the offset a fling would come to rest at without snapping
+     * @param direction sign of the fling velocity, 0 to pick the nearest target
+     * @return the position to snap to
+     */
+    private int findSnapPosition(int current, int landing, int direction) {
+        final int viewport = getWidth() - getPaddingLeft() - getPaddingRight();
+        if (mSnapMode == SNAP_PAGE) {
+            // one page per fling, however fast
+            landing = current + direction * viewport;
+        }
+        // positions step by column
+        final int step = mSpanCount;
+        int position = getLayoutPosition(mSnapMode == SNAP_CENTER ? landing + viewport / 2 : landing);
+        final boolean hasNext = mCircular || position + step < mItemCount;
+        if (mSnapMode != SNAP_CENTER && hasNext
+                && landing - getSnapOffset(position) > getSnapOffset(position + step) - landing) {
+            position += step;
+        }
+        // never settle behind where the fling started
+        if (direction > 0 && getSnapOffset(position) <= current && (mCircular || position + step < mItemCount)) {
+            position += step;
+        } else if (direction < 0 && getSnapOffset(position) >= current && (mCircular || position > 0)) {
+            position -= step;
+        }
+        return position;
+    }
+
+    /**
+     * @return the left edge of the area items are shown in, in the coordinates of the children
+     */
+    private int getViewportLeft() {
+        return getScrollX() + getPaddingLeft();
+    }
+
+    /**
+     * @return the right edge of the area items are shown in, in the coordinates of the children
+     */
+    private int getViewportRight() {
+        return getScrollX() + getWidth() - getPaddingRight();
+    }
+
+    /**
+     * Moves all items by delta, either by offsetting every child or, when scrolling the viewport, by
+     * moving scrollX the other way.
+     */
+    private void offsetChildren(int delta) {
+        if (mViewportScrolling) {
+            scrollTo(getScrollX() - delta, getScrollY());
+        } else {
+            for (int i = getChildCount() - 1; i >= 0; i--) {
+                getChildAt(i).offsetLeftAndRight(delta);
+            }
+            if (mItemAnimation != null) {
+                mItemAnimation.offsetDisappearingViews(delta);
+            }
+        }
+    }
+
+    /**
+     * @return the offset index of all columns, i.e. of all items unless there are several rows, built
+     * on first use. Columns on screen count with their real width, all other columns with the average
+     * width of the columns on screen until they are laid out.
+     */
+    private ItemOffsetIndex getOffsetIndex() {
+        if (mOffsetIndex == null || mOffsetIndexInvalid) {
+            final int childCount = getChildCount();
+            final int columnCount = getColumnCount();
+            int estimatedWidth = 1;
+            if (childCount > 0) {
+                final int visibleColumns = (childCount + mSpanCount - 1) / mSpanCount;
+                estimatedWidth = Math.max(1, (getDecoratedRight(getChildAt(childCount - 1)) - getDecoratedLeft(getChildAt(0))) / visibleColumns);
+            }
+            if (mOffsetIndex == null) {
+                mOffsetIndex = new ItemOffsetIndex(columnCount, estimatedWidth);
+            } else {
+                mOffsetIndex.reset(columnCount, estimatedWidth);
+            }
+            mOffsetIndexInvalid = false;
+            for (int i = 0; i < childCount; i += mSpanCount) {
+                final View child = getChildAt(i);
+                mOffsetIndex.setWidth(getAdapterPosition(mFirstPosition + i) / mSpanCount,
+                        getDecoratedRight(child) - getDecoratedLeft(child));
+            }
+        }
+        return mOffsetIndex;
+    }
+
+    @Override
+    protected int computeHorizontalScrollExtent() {
+        return getWidth() - getPaddingLeft() - getPaddingRight();
+    }
+
+    @Override
+    protected int computeHorizontalScrollOffset() {
+        if (mAdapter == null || mItemCount == 0) {
+            return 0;
+        }
+        if (mCircular) {
+            final int lapWidth = Math.max(1, getTotalItemWidth());
+            final int offset = getCurrentOffset() % lapWidth;
+            return offset < 0 ? offset + lapWidth : offset;
+        }
+        return getCurrentOffset();
+    }
+
+    @Override
+    protected int computeHorizontalScrollRange() {
+        if (mAdapter == null || mItemCount == 0) {
+            return 0;
+        }
+        return getTotalItemWidth();
+    }
+
+    /**
+     * Throws the current children into the scrap heap and lays out again with position as the first
+     * item, its left edge at itemLeft.
+     */
+    private void jumpTo(int position, int itemLeft) {
+        final int childCount = getChildCount();
+        for (int i = 0; i < childCount; i++) {
+            mRecycler.addScrapView(getChildAt(i), mFirstPosition + i);
+        }
+        detachAllViewsFromParent();
+        mRecycler.removeSkippedScrap();
+        mFirstPosition = position;
+        mFirstItemLeft = itemLeft;
+        if (getWidth() > 0 && mItemCount > 0 && !mInLayout) {
+            mInLayout = true;
+            fillList();
+            mFirstItemLeft = getDecoratedLeft(getChildAt(0)) - getScrollX();
+            mInLayout = false;
+        } else {
+            requestLayout();
+        }
+    }
+
+    /**
+     * Same as {@link #notifyItemRangeChanged(int, int)} for a single item.
+     */
+    public void notifyItemChanged(int position) {
+        notifyItemRangeChanged(position, 1);
+    }
+
+    /**
+     * Tells the view that the data of itemCount items starting at positionStart changed, after the
+     * adapter was updated. Only the visible ones among them are bound again; the other children keep
+     * their views and are shifted only if a rebound item changed its width. Unlike
+     * {@link android.widget.BaseAdapter#notifyDataSetChanged()} this does not rebind every visible item.
+     */
+    public void notifyItemRangeChanged(int positionStart, int itemCount) {
+        if (!prepareItemUpdate()) {
+            return;
+        }
+        if (mWidthCache != null) {
+            if (itemCount > getChildCount()) {
+                mWidthCache.clear();
+            } else {
+                for (int i = 0; i < itemCount; i++) {
+                    mWidthCache.put(getItemKey(positionStart + i), ItemWidthCache.NO_WIDTH);
+                }
+            }
+        }
+        final int first = Math.max(positionStart, mFirstPosition);
+        final int last = Math.min(positionStart + itemCount, mFirstPosition + getChildCount());
+        for (int position = first; position < last; position++) {
+            rebindChild(position);
+        }
+        finishItemUpdate();
+    }
+
+    /**
+     * Tells the view that itemCount items were inserted at positionStart, after the adapter was
+     * updated. Only the inserted items that become visible are bound; the children behind them are
+     * shifted to the right.
+     */
+    public void notifyItemRangeInserted(int positionStart, int itemCount) {
+        if (!prepareItemUpdate()) {
+            return;
+        }
+        insertItems(positionStart, itemCount);
+        finishItemUpdate();
+    }
+
+    /**
+     * Tells the view that itemCount items starting at positionStart were removed, after the adapter
+     * was updated. The children behind the removed ones are shifted to the left and only the items
+     * revealed at the right edge are bound.
+     */
+    public void notifyItemRangeRemoved(int positionStart, int itemCount) {
+        if (!prepareItemUpdate()) {
+            return;
+        }
+        removeItems(positionStart, itemCount);
+        finishItemUpdate();
+    }
+
+    /**
+     * Tells the view that the item at fromPosition moved to toPosition, after the adapter was updated.
+     */
+    public void notifyItemMoved(int fromPosition, int toPosition) {
+        if (fromPosition == toPosition || !prepareItemUpdate()) {
+            return;
+        }
+        // no edge fill in between, the children must match the new data only once both steps are done
+        final boolean keepWidth = mOffsetIndex != null && !mOffsetIndexInvalid && mOffsetIndex.getCount() == mItemCount;
+        final int movedWidth = keepWidth ? mOffsetIndex.getWidth(fromPosition) : 0;
+        // between the two steps the data holds one item less
+        mItemCount--;
+        removeItems(fromPosition, 1);
+        mItemCount++;
+        insertItems(toPosition, 1);
+        if (keepWidth && !mOffsetIndexInvalid) {
+            mOffsetIndex.setWidth(toPosition, movedWidth);
+        }
+        finishItemUpdate();
+    }
+
+    /**
+     * @return true if the children can be updated in place, false if a full layout was requested instead
+     */
+    private boolean prepareItemUpdate() {
+        mItemCount = mAdapter == null ? 0 : mAdapter.getCount();
+        mPrefetchTask.cancel();
+        if (mPreparer != null) {
+            mPreparer.cancelAll();
+        }
+        // with several rows an insert or remove moves items between columns, and in circular mode
+        // between laps, lay out all columns again
+        if (mAdapter == null || mDataChanged || mInLayout || getChildCount() == 0 || mItemCount == 0
+                || mSpanCount > 1 || mCircular) {
+            mDataChanged = true;
+            requestLayout();
+            return false;
+        }
+        // bound children are measured and laid out right here, their layout requests need not go up
+        mBlockLayoutRequests = true;
+        if (mItemAnimation != null) {
+            mItemAnimation.recordPreLayout();
+        }
+        return true;
+    }
+
+    private void rebindChild(int position) {
+        final int index = position - mFirstPosition;
+        final View oldChild = getChildAt(index);
+        final LayoutParams oldLp = (LayoutParams) oldChild.getLayoutParams();
+        final int left = getDecoratedLeft(oldChild);
+        final int oldWidth = getDecoratedRight(oldChild) - left;
+
+        final View convertView;
+        if (oldLp.viewType == mAdapter.getItemViewType(position)) {
+            convertView = oldChild;
+        } else {
+            convertView = mRecycler.getScrapView(position);
+        }
+        final View child = bindItem(position, convertView);
+        if (child == oldChild) {
+            // the adapter may have replaced the LayoutParams while binding
+            final LayoutParams lp = getItemLayoutParams(child);
+            if (lp != oldLp) {
+                lp.flingLayer = oldLp.flingLayer;
+                child.setLayoutParams(lp);
+            }
+            lp.viewType = mAdapter.getItemViewType(position);
+            updateDecorInsets(position, lp);
+            measureItem(child, position, lp);
+            final int childLeft = left + lp.decorInsets.left;
+            final int childTop = getPaddingTop() + lp.decorInsets.top;
+            child.layout(childLeft, childTop, childLeft + child.getMeasuredWidth(),
+                    childTop + child.getMeasuredHeight());
+            if (mOffsetIndex != null && !mOffsetIndexInvalid && mItemWidth == 0) {
+                mOffsetIndex.setWidth(position, getDecoratedMeasuredWidth(child));
+            }
+        } else {
+            detachViewFromParent(index);
+            mRecycler.addScrapView(oldChild, position);
+            if (convertView != null && convertView != child && convertView != oldChild) {
+                mRecycler.addScrapView(convertView, position);
+            }
+            mRecycler.removeSkippedScrap();
+            setupChild(child, position, index, left, true, child == convertView);
+        }
+
+        final int delta = getDecoratedRight(child) - left - oldWidth;
+        if (delta != 0) {
+            final int childCount = getChildCount();
+            for (int i = index + 1; i < childCount; i++) {
+                getChildAt(i).offsetLeftAndRight(delta);
+            }
+        }
+    }
+
+    private void insertItems(int positionStart, int itemCount) {
+        invalidatePositions();
+        if (mOffsetIndex != null && !mOffsetIndexInvalid && mOffsetIndex.getCount() + itemCount == mItemCount) {
+            mOffsetIndex.insert(positionStart, itemCount);
+        } else {
+            mOffsetIndexInvalid = true;
+        }
+        final int childCount = getChildCount();
+        if (positionStart < mFirstPosition) {
+            mFirstPosition += itemCount;
+            return;
+        }
+        if (positionStart > mFirstPosition + childCount) {
+            return;
+        }
+        int index = positionStart - mFirstPosition;
+        final int startLeft;
+        if (index < childCount) {
+            startLeft = getDecoratedLeft(getChildAt(index));
+        } else if (childCount > 0) {
+            startLeft = getDecoratedRight(getChildAt(childCount - 1));
+        } else {
+            startLeft = mFirstItemLeft + getScrollX();
+        }
+        final int end = getViewportRight();
+        final int positionEnd = positionStart + itemCount;
+        int nextLeft = startLeft;
+        int position = positionStart;
+        while (position < positionEnd && nextLeft < end) {
+            final View child = obtainView(position, index, nextLeft, true);
+            if (mItemAnimation != null) {
+                ((LayoutParams) child.getLayoutParams()).appearing = true;
+            }
+            nextLeft = getDecoratedRight(child);
+            index++;
+            position++;
+        }
+        if (position < positionEnd) {
+            // the inserted items alone fill the screen, everything behind them goes to the scrap heap
+            for (int i = getChildCount() - 1; i >= index; i--) {
+                scrapChild(i, mFirstPosition + i + positionEnd - position, true);
+            }
+            mRecycler.removeSkippedScrap();
+        } else {
+            final int shift = nextLeft - startLeft;
+            final int newChildCount = getChildCount();
+            for (int i = index; i < newChildCount; i++) {
+                getChildAt(i).offsetLeftAndRight(shift);
+            }
+        }
+    }
+
+    private void removeItems(int positionStart, int itemCount) {
+        invalidatePositions();
+        if (mOffsetIndex != null && !mOffsetIndexInvalid && mOffsetIndex.getCount() - itemCount == mItemCount) {
+            mOffsetIndex.remove(positionStart, itemCount);
+        } else {
+            mOffsetIndexInvalid = true;
+        }
+        final int positionEnd = positionStart + itemCount;
+        final int childCount = getChildCount();
+        if (positionEnd <= mFirstPosition) {
+            mFirstPosition -= itemCount;
+            return;
+        }
+        if (positionStart >= mFirstPosition + childCount) {
+            return;
+        }
+        final int from = Math.max(positionStart, mFirstPosition) - mFirstPosition;
+        final int to = Math.min(positionEnd, mFirstPosition + childCount) - mFirstPosition;
+        final int left = getDecoratedLeft(getChildAt(from));
+        final int right = getDecoratedRight(getChildAt(to - 1));
+        for (int i = to - 1; i >= from; i--) {
+            scrapChild(i, mFirstPosition + i, true);
+        }
+        mRecycler.removeSkippedScrap();
+        final int shift = left - right;
+        final int newChildCount = getChildCount();
+        for (int i = from; i < newChildCount; i++) {
+            getChildAt(i).offsetLeftAndRight(shift);
+        }
+        if (positionStart < mFirstPosition) {
+            mFirstPosition = positionStart;
+        }
+        if (newChildCount == 0) {
+            mFirstItemLeft = left - getScrollX();
+        }
+    }
+
+    /**
+     * Takes the child at index out of an item update. While item animations run it first slides or,
+     * if its item was removed, fades out in the overlay, otherwise it goes to the scrap heap right away.
+     */
+    private void scrapChild(int index, int position, boolean removed) {
+        final View child = getChildAt(index);
+        if (mItemAnimation != null && mItemAnimation.disappear(child, position, removed)) {
+            return;
+        }
+        mRecycler.addScrapView(child, position);
+        detachViewFromParent(index);
+    }
+
+    /**
+     * Items moved, so widths remembered by position are stale. The offset index is shifted by the
+     * caller instead.
+     */
+    private void invalidatePositions() {
+        if (mWidthCache != null && !mAdapter.hasStableIds()) {
+            mWidthCache.clear();
+        }
+    }
+
+    /**
+     * Drops children pushed past the right edge, fills the gap an update left at the right edge and
+     * shifts the items right if the end of the list was reached.
+     */
+    private void finishItemUpdate() {
+        final int end = getViewportRight();
+        int childCount = getChildCount();
+        while (childCount > 1 && getDecoratedLeft(getChildAt(childCount - 1)) >= end) {
+            scrapChild(childCount - 1, mFirstPosition + childCount - 1, false);
+            childCount--;
+        }
+        mRecycler.removeSkippedScrap();
+        if (childCount == 0) {
+            mFirstPosition = Math.max(0, Math.min(mFirstPosition, mItemCount - 1));
+            fillListRight(mFirstPosition, mFirstItemLeft + getScrollX());
+        } else {
+            fillListRight(mFirstPosition + childCount, getDecoratedRight(getChildAt(childCount - 1)));
+        }
+        correctTooLeft();
+        // children shifted left into the gap of removed items may end left of the viewport
+        removeChildrenBefore(getViewportLeft());
+        mRecycler.removeSkippedScrap();
+        mFirstItemLeft = getDecoratedLeft(getChildAt(0)) - getScrollX();
+        mRecycler.pruneScrapViews();
+        if (mItemAnimation != null) {
+            mItemAnimation.animateChanges();
+        }
+        mBlockLayoutRequests = false;
+        prepareAhead(0);
+        invalidate();
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        // Sets up mListPadding
+        super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+        mHeightMeasureSpec = heightMeasureSpec;
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int l, int t, int r, int b) {
+        super.onLayout(changed, l, t, r, b);
+        if (mItemCount == 0) {
+            reset();
+            return;
+        }
+        mInLayout = true;
+        // Children are measured with an UNSPECIFIED width, so only a new height invalidates them
+        final int height = b - t;
+        if (changed && height != mLayoutHeight) {
+            mLayoutHeight = height;
+            int childCount = getChildCount();
+            for (int i = 0; i < childCount; i++) {
+                getChildAt(i).forceLayout();
+            }
+            mRecycler.markChildrenDirty();
+            if (mWidthCache != null) {
+                mWidthCache.clear();
+            }
+            // the offset index keeps the widths it knows, items report their new width when laid out again
+        }
+        if (mPendingState != null) {
+            applyPendingState();
+        }
+        fillList();
+        mFirstItemLeft = getDecoratedLeft(getChildAt(0)) - getScrollX();
+        mInLayout = false;
+
+    }
+
+    @Override
+    public Parcelable onSaveInstanceState() {
+        final SavedState ss = new SavedState(super.onSaveInstanceState());
+        if (getChildCount() > 0 && mAdapter != null) {
+            ss.firstPosition = getAdapterPosition(mFirstPosition);
+            ss.firstItemLeft = getDecoratedLeft(getChildAt(0)) - getViewportLeft();
+            ss.firstId = mAdapter.hasStableIds() ? mAdapter.getItemId(ss.firstPosition) : INVALID_ROW_ID;
+        } else if (mPendingState != null) {
+            // not laid out since the last restore, keep what was restored
+            ss.firstPosition = mPendingState.firstPosition;
+            ss.firstItemLeft = mPendingState.firstItemLeft;
+            ss.firstId = mPendingState.firstId;
+        }
+        return ss;
+    }
+
+    @Override
+    public void onRestoreInstanceState(Parcelable state) {
+        if (!(state instanceof SavedState)) {
+            super.onRestoreInstanceState(state);
+            return;
+        }
+        final SavedState ss = (SavedState) state;
+        super.onRestoreInstanceState(ss.getSuperState());
+        if (ss.firstPosition != INVALID_POSITION) {
+            mFlingRunnable.stop();
+            mPendingState = ss;
+            requestLayout();
+        }
+    }
+
+    /**
+     * Lays out from the restored first item, found by its stable id if the data moved, so that only
+     * the items on screen are bound.
+     */
+    private void applyPendingState() {
+        final SavedState ss = mPendingState;
+        mPendingState = null;
+        final int childCount = getChildCount();
+        for (int i = 0; i < childCount; i++) {
+            mRecycler.addScrapView(getChildAt(i), mFirstPosition + i);
+        }
+        detachAllViewsFromParent();
+        mRecycler.removeSkippedScrap();
+        mFirstPosition = findRestorePosition(ss);
+        mFirstItemLeft = getPaddingLeft() + ss.firstItemLeft;
+    }
+
+    private int findRestorePosition(SavedState ss) {
+        final int count = mItemCount;
+        final int saved = Math.max(0, Math.min(ss.firstPosition, count - 1));
+        if (ss.firstId == INVALID_ROW_ID || !mAdapter.hasStableIds()) {
+            return saved;
+        }
+        // search outwards from where the item was, the data most likely moved only a little
+        final long endTime = SystemClock.uptimeMillis() + SYNC_MAX_DURATION_MILLIS;
+        for (int distance = 0; distance < count; distance++) {
+            if (saved + distance < count && mAdapter.getItemId(saved + distance) == ss.firstId) {
+                return saved + distance;
+            }
+            if (distance > 0 && saved - distance >= 0 && mAdapter.getItemId(saved - distance) == ss.firstId) {
+                return saved - distance;
+            }
+            if ((distance & 0xff) == 0 && SystemClock.uptimeMillis() > endTime) {
+                break;
+            }
+        }
+        return saved;
+    }
+
+    private void fillList() {
+        if (mFirstPosition >= mItemCount && !mCircular) {
+            // the data set shrank below the first visible item
+            mFirstPosition = mItemCount - 1;
+            mFirstItemLeft = Integer.MIN_VALUE;
+        }
+        final int childCount = getChildCount();
+        final boolean dataChanged = mDataChanged;
+        if (dataChanged) {
+            for (int i = 0; i < childCount; i++) {
+                mRecycler.addScrapView(getChildAt(i), mFirstPosition + i);
+            }
         } else {
             mRecycler.fillActiveViews(childCount, mFirstPosition);
         }
-        int firstLeft = getPaddingLeft();
-        if (childCount != 0) {
-            firstLeft = getChildAt(0).getLeft();
-            detachAllViewsFromParent();
+        int firstLeft = getPaddingLeft();
+        if (childCount != 0) {
+            firstLeft = getDecoratedLeft(getChildAt(0)) - getScrollX();
+            detachAllViewsFromParent();
+        }
+        // a full layout starts from scrollX 0 again, so that the children's coordinates stay small
+        scrollTo(0, getScrollY());
+        if (dataChanged && mCircular) {
+            // back to lap 0, the item count may have changed
+            mFirstPosition = getAdapterPosition(mFirstPosition);
+        }
+        // the first column starts with the item of the first row
+        final int row = mFirstPosition % mSpanCount;
+        mFirstPosition -= row < 0 ? row + mSpanCount : row;
+        fillListRight(mFirstPosition, mFirstItemLeft == Integer.MIN_VALUE ? firstLeft : mFirstItemLeft);
+        correctTooLeft();
+        if (dataChanged) {
+            // the first items may have been bound narrower than before and end left of the viewport
+            removeChildrenBefore(getViewportLeft());
+        }
+        mDataChanged = false;
+        mRecycler.scrapActiveViews();
+        mRecycler.removeSkippedScrap();
+        prepareAhead(0);
+        invalidate();
+
+
+    }
+
+    /**
+     * Moves the items right when the last item ends left of the right padding, e.g. after the data
+     * set shrank or a scroll step overshot the end, and fills the left edge.
+     *
+     * @return the distance the items were moved
+     */
+    private int correctTooLeft() {
+        final int childCount = getChildCount();
+        if (mFirstPosition + childCount == mItemCount && childCount > 0 && !mCircular) {
+            int end = getViewportRight();
+            View lastChild = getChildAt(getChildCount() - 1);
+            View firstChild = getChildAt(0);
+            int rightOffset = end - getDecoratedRight(lastChild);
+            if (rightOffset > 0 && (mFirstPosition > 0 || getViewportLeft() - getDecoratedLeft(firstChild) > 0)) {
+                if (mFirstPosition == 0) {
+                    rightOffset = Math.min(rightOffset, getViewportLeft() - getDecoratedLeft(firstChild));
+                }
+                offsetChildren(rightOffset);
+                if (mFirstPosition > 0) {
+                    fillListLeft(mFirstPosition - mSpanCount, getDecoratedLeft(firstChild));
+                    // all items may fit into the viewport, they start at its left edge then
+                    rightOffset += correctTooRight();
+                }
+                return rightOffset;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @param startPos first position of the column to start with
+     */
+    private void fillListLeft(int startPos, int startLeft) {
+        int start = getViewportLeft();
+        int nextLeft = startLeft;
+        int childIndex = startPos;
+        while (nextLeft > start && (childIndex >= 0 || mCircular)) {
+            nextLeft = obtainColumn(childIndex, 0, nextLeft, false);
+            childIndex -= mSpanCount;
+        }
+        mFirstPosition = childIndex + mSpanCount;
+
+    }
+
+    /**
+     * Moves the items left when the first item starts right of the left padding, i.e. a scroll step
+     * overshot the start, and fills the right edge.
+     *
+     * @return the distance the items were moved
+     */
+    private int correctTooRight() {
+        final int childCount = getChildCount();
+        if (mFirstPosition == 0 && childCount > 0 && !mCircular) {
+            int start = getViewportLeft();
+            View lastChild = getChildAt(getChildCount() - 1);
+            View firstChild = getChildAt(0);
+            int leftOffset = start - getDecoratedLeft(firstChild);
+            if (leftOffset < 0) {
+                offsetChildren(leftOffset);
+                if (mFirstPosition + childCount < mItemCount) {
+                    fillListRight(mFirstPosition + childCount, getDecoratedRight(lastChild));
+                }
+                return leftOffset;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @param startPos first position of the column to start with
+     */
+    private void fillListRight(int startPos, int startRight) {
+        int end = getViewportRight();
+        int nextRight = startRight;
+        int childIndex = startPos;
+        while (nextRight < end && (childIndex <= mAdapter.getCount() - 1 || mCircular)) {
+            nextRight = obtainColumn(childIndex, -1, nextRight, true);
+            childIndex += mSpanCount;
+        }
+    }
+
+    /**
+     * Adds the column starting at position. With several rows its items are stacked top to bottom and
+     * the narrower ones are stretched to the widest, so that the edges of every child are the edges of
+     * its column.
+     *
+     * @param childIndex index the first item of the column is attached at, -1 to attach the column
+     *                   after all other children
+     * @param edge       left edge of the column if toRight, its right edge otherwise
+     * @return the other edge of the column
+     */
+    private int obtainColumn(int position, int childIndex, int edge, boolean toRight) {
+        if (mSpanCount == 1) {
+            final View child = obtainView(position, childIndex, edge, toRight);
+            return toRight ? getDecoratedRight(child) : getDecoratedLeft(child);
+        }
+        final int first = childIndex < 0 ? getChildCount() : childIndex;
+        // in circular mode a column may hold the end and the start of the data
+        final int count = mCircular ? mSpanCount : Math.min(mSpanCount, mItemCount - position);
+        int width = 0;
+        for (int i = 0; i < count; i++) {
+            final View child = obtainView(position + i, first + i, edge, toRight);
+            width = Math.max(width, getDecoratedRight(child) - getDecoratedLeft(child));
+        }
+        final int left = toRight ? edge : edge - width;
+        for (int i = first; i < first + count; i++) {
+            final View child = getChildAt(i);
+            if (getDecoratedRight(child) - getDecoratedLeft(child) != width) {
+                final Rect insets = ((LayoutParams) child.getLayoutParams()).decorInsets;
+                child.measure(MeasureSpec.makeMeasureSpec(width - insets.left - insets.right, MeasureSpec.EXACTLY),
+                        MeasureSpec.makeMeasureSpec(child.getMeasuredHeight(), MeasureSpec.EXACTLY));
+                final int childLeft = left + insets.left;
+                child.layout(childLeft, child.getTop(), childLeft + child.getMeasuredWidth(), child.getBottom());
+                // measured again when reused, so that its own width counts for the next column
+                child.forceLayout();
+            }
+        }
+        if (mOffsetIndex != null && !mOffsetIndexInvalid && mItemWidth == 0) {
+            mOffsetIndex.setWidth(getAdapterPosition(position) / mSpanCount, width);
+        }
+        return toRight ? edge + width : left;
+    }
+
+    /**
+     * @param childIndex index the child is attached at, -1 to attach it after all other children
+     * @param edge       left edge of the child if toRight, its right edge otherwise
+     */
+    private void setupChild(View child, int position, int childIndex, int edge, boolean toRight, boolean isRecycled) {
+        final LayoutParams p = getItemLayoutParams(child);
+        final int adapterPosition = getAdapterPosition(position);
+        p.viewType = mAdapter.getItemViewType(adapterPosition);
+        final boolean insetsChanged = updateDecorInsets(adapterPosition, p);
+        final Rect insets = p.decorInsets;
+        int top = getPaddingTop() + insets.top;
+        if (mSpanCount > 1) {
+            final int row = position % mSpanCount;
+            top += (row < 0 ? row + mSpanCount : row) * getRowHeight();
+        }
+        if (isRecycled && !p.forceAdd && !insetsChanged && !child.isLayoutRequested()) {
+            attachViewToParent(child, childIndex, p);
+
+            int left = toRight ? edge + insets.left : edge - insets.right - child.getMeasuredWidth();
+            child.offsetLeftAndRight(left - child.getLeft());
+            if (child.getTop() != top) {
+                // the view showed an item of another row
+                child.offsetTopAndBottom(top - child.getTop());
+            }
+        } else {
+            addViewInLayout(child, childIndex, p, true);
+            p.forceAdd = false;
+
+            measureItem(child, adapterPosition, p);
+            int left = toRight ? edge + insets.left : edge - insets.right - child.getMeasuredWidth();
+            int right = left + child.getMeasuredWidth();
+            int bottom = top + child.getMeasuredHeight();
+            child.layout(left, top, right, bottom);
+        }
+        // with several rows the column updates the index once it knows its width
+        if (mOffsetIndex != null && !mOffsetIndexInvalid && mItemWidth == 0 && mSpanCount == 1) {
+            mOffsetIndex.setWidth(adapterPosition, getDecoratedMeasuredWidth(child));
+        }
+        if (mFlingLayersActive) {
+            addFlingLayer(child);
+        }
+    }
+
+    /**
+     * @return the child's LayoutParams, or new ones generated from them if they are missing or of
+     * another type. The new ones are not set on the child.
+     */
+    private LayoutParams getItemLayoutParams(View child) {
+        // Only views coming from the adapter for the first time lack our LayoutParams; once attached
+        // they keep them, so recycling a view never allocates
+        final ViewGroup.LayoutParams vlp = child.getLayoutParams();
+        if (vlp == null) {
+            return generateDefaultLayoutParams();
+        } else if (!checkLayoutParams(vlp)) {
+            return generateLayoutParams(vlp);
+        }
+        return (LayoutParams) vlp;
+    }
+
+    private void measureItem(View child, int position, LayoutParams p) {
+        final Rect insets = p.decorInsets;
+        int childHeightSpec;
+        if (mSpanCount > 1) {
+            final int rowSpec = MeasureSpec.makeMeasureSpec(getRowHeight(), MeasureSpec.getMode(mHeightMeasureSpec));
+            childHeightSpec = ViewGroup.getChildMeasureSpec(rowSpec, insets.top + insets.bottom, p.height);
+        } else {
+            childHeightSpec = ViewGroup.getChildMeasureSpec(mHeightMeasureSpec,
+                    getPaddingTop() + getPaddingBottom() + insets.top + insets.bottom, p.height);
+        }
+        // a fixed item width includes the offsets of decorations, so that offsets stay arithmetic
+        final int knownWidth = mItemWidth > 0 ? Math.max(1, mItemWidth - insets.left - insets.right)
+                : getKnownItemWidth(position);
+        if (knownWidth > 0) {
+            // a clean view that already has the known width needs no measure pass at all
+            if (child.isLayoutRequested() || child.getMeasuredWidth() != knownWidth) {
+                child.measure(MeasureSpec.makeMeasureSpec(knownWidth, MeasureSpec.EXACTLY), childHeightSpec);
+            }
+        } else {
+            int lpWidth = p.width;
+            int childWidthSpec;
+            if (lpWidth > 0) {
+                childWidthSpec = MeasureSpec.makeMeasureSpec(lpWidth, MeasureSpec.EXACTLY);
+            } else {
+                childWidthSpec = MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED);
+            }
+            child.measure(childWidthSpec, childHeightSpec);
+            if (mWidthCache != null) {
+                mWidthCache.put(getItemKey(position), child.getMeasuredWidth());
+            }
+        }
+    }
+
+    /**
+     * @return the width the item at position is known to have, either declared by an
+     * {@link ItemWidthAdapter} or remembered by the width cache, or 0 if it has to be measured
+     */
+    private int getKnownItemWidth(int position) {
+        if (mItemWidth > 0) {
+            return mItemWidth;
+        }
+        if (mItemWidthAdapter != null) {
+            final int width = mItemWidthAdapter.getItemWidth(position);
+            if (width > 0) {
+                return width;
+            }
+        }
+        if (mWidthCache != null) {
+            final int width = mWidthCache.get(getItemKey(position));
+            if (width > 0) {
+                return width;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @return the key items are remembered by: the stable id if the adapter has stable ids, the
+     * position otherwise
+     */
+    private long getItemKey(int position) {
+        final int adapterPosition = getAdapterPosition(position);
+        return mAdapter.hasStableIds() ? mAdapter.getItemId(adapterPosition) : adapterPosition;
+    }
+
+    /**
+     * Calls the adapter's getView, handing a {@link PreparingAdapter} the result prepared for position.
+     */
+    private View bindItem(int position, View convertView) {
+        final ScrollMetrics metrics = mMetrics;
+        final long start = metrics != null ? System.nanoTime() : 0;
+        final View child;
+        if (mPreparer != null && mPreparingAdapter != null) {
+            final Object prepared = mPreparer.take(getItemKey(position));
+            child = mPreparingAdapter.getView(getAdapterPosition(position), convertView, this, prepared);
+        } else {
+            child = mAdapter.getView(getAdapterPosition(position), convertView, this);
+        }
+        if (metrics != null) {
+            metrics.getViewNanos += System.nanoTime() - start;
+            metrics.getViewCount++;
+        }
+        return child;
+    }
+
+    /**
+     * Starts preparing the items of one screen beyond each edge the list may scroll towards and drops
+     * prepared results that fell out of that window.
+     *
+     * @param direction sign of the last scroll step, 0 to prepare on both sides
+     */
+    private void prepareAhead(int direction) {
+        final int childCount = getChildCount();
+        if (mPreparer == null || mPreparingAdapter == null || mDataChanged || childCount == 0) {
+            return;
+        }
+        final int ahead = Math.max(childCount, mPrefetchTask.mPrefetchCount);
+        final int first = mFirstPosition;
+        final int last = mFirstPosition + childCount - 1;
+        final int windowFirst = mCircular ? first - ahead : Math.max(0, first - ahead);
+        final int windowLast = mCircular ? last + ahead : Math.min(mItemCount - 1, last + ahead);
+        mPreparer.trim(windowFirst, windowLast);
+        if (direction <= 0) {
+            for (int position = last + 1; position <= windowLast; position++) {
+                mPreparer.prepare(position, getItemKey(position), mPreparation);
+            }
+        }
+        if (direction >= 0) {
+            for (int position = first - 1; position >= windowFirst; position--) {
+                mPreparer.prepare(position, getItemKey(position), mPreparation);
+            }
+        }
+    }
+
+    private View obtainView(int position, int childIndex, int edge, boolean toRight) {
+        final ScrollMetrics metrics = mMetrics;
+        View child = mRecycler.getActiveView(position);
+        boolean isRecycle = true;
+        if (child != null) {
+            if (metrics != null) {
+                metrics.activeHits++;
+            }
+        } else if (mPrefetchTask.mPrefetchCount > 0) {
+            child = mPrefetchTask.take(position);
+            if (child != null && metrics != null) {
+                metrics.prefetchHits++;
+            }
+        }
+        if (child == null) {
+            View scrapView = mRecycler.getScrapView(position);
+            if (scrapView != null) {
+                child = bindItem(position, scrapView);
+                if (child != scrapView) {
+                    isRecycle = false;
+                    mRecycler.addScrapView(scrapView, position);
+                }
+            } else {
+                isRecycle = false;
+                child = bindItem(position, null);
+            }
+            if (metrics != null) {
+                if (!isRecycle) {
+                    metrics.inflates++;
+                } else if (((LayoutParams) child.getLayoutParams()).scrappedFromPosition
+                        == getAdapterPosition(position)) {
+                    metrics.scrapHitsSamePosition++;
+                } else {
+                    metrics.scrapHitsOtherPosition++;
+                }
+            }
+        }
+        final long start = metrics != null ? System.nanoTime() : 0;
+        setupChild(child, position, childIndex, edge, toRight, isRecycle);
+        if (metrics != null) {
+            metrics.setupChildNanos += System.nanoTime() - start;
+            metrics.setupChildCount++;
+        }
+        return child;
+    }
+
+    public boolean trackMotionScroll(int deltaX) {
+        return trackMotionScroll(deltaX, true);
+    }
+
+    /**
+     * @param deltaX
+     * @param notify true to call mOnScrollListener.onScroll(), false otherwise
+     * @return false if the list is already at the edge deltaX moves towards
+     */
+    public boolean trackMotionScroll(int deltaX, boolean notify) {
+        final int scrolled = scrollItems(deltaX, notify);
+        invalidate();
+        return deltaX == 0 || scrolled != 0;
+    }
+
+    /**
+     * Moves the items by deltaX. Children that scroll out are recycled first, the remaining children
+     * are offset once and only the exposed edge is filled, with the new children laid out where they
+     * end up. All children are offset a second time only in the step that reaches an end of the data
+     * it couldn't see coming. Doesn't invalidate, so that several steps of a frame draw once.
+     *
+     * @return deltaX clamped to the edges of the list, i.e. the distance the items actually moved
+     */
+    private int scrollItems(int deltaX, boolean notify) {
+        final ScrollMetrics metrics = mMetrics;
+        if (metrics == null) {
+            return moveItems(deltaX, notify);
+        }
+        final long start = System.nanoTime();
+        final int scrolled = moveItems(deltaX, notify);
+        metrics.recordScroll(System.nanoTime() - start);
+        metrics.recordScrapSize(mRecycler.getScrapCount());
+        return scrolled;
+    }
+
+    private int moveItems(int deltaX, boolean notify) {
+        final int childCount = getChildCount();
+        if (childCount == 0) {
+            mShouldStopFling = true;
+            return 0;
+        }
+        final int firstPosition = mFirstPosition;
+        final int lastPosition = mFirstPosition + childCount - 1;
+
+        //see whether to scroll or not, a circular list has no edges
+        if (!mCircular && firstPosition == 0 && deltaX > 0) {
+            View firstChild = getChildAt(0);
+            int leftOffset = getViewportLeft() - getDecoratedLeft(firstChild);
+            if (leftOffset <= 0) {
+                mShouldStopFling = true;
+                return 0;
+            }
+            deltaX = Math.min(leftOffset, deltaX);
+        } else if (!mCircular && lastPosition == mItemCount - 1 && deltaX < 0) {
+            View lastChild = getChildAt(lastPosition - firstPosition);
+            int rightOffset = getViewportRight() - getDecoratedRight(lastChild);
+            if (rightOffset >= 0) {
+                mShouldStopFling = true;
+                return 0;
+            }
+            deltaX = -Math.min(Math.abs(rightOffset), Math.abs(deltaX));
+        }
+
+        final int oldLeft = getDecoratedLeft(getChildAt(0));
+        final int oldRight = getDecoratedRight(getChildAt(childCount - 1));
+
+        removeNonVisibleView(deltaX);
+
+        offsetChildren(deltaX);
+        // new children are laid out where the remaining ones are now
+        final int shift = mViewportScrolling ? 0 : deltaX;
+        if (deltaX < 0) {
+            //gesture is moving towards left
+            fillListRight(lastPosition + 1, oldRight + shift);
+            deltaX += correctTooLeft();
+        } else if (deltaX > 0) {
+            //gesture is moving towards right
+            fillListLeft(firstPosition - mSpanCount, oldLeft + shift);
+            deltaX += correctTooRight();
+        }
+        mFirstItemLeft = getDecoratedLeft(getChildAt(0)) - getScrollX();
+        mRecycler.pruneScrapViews();
+        if (mPrefetchTask.mPrefetchCount > 0) {
+            mPrefetchTask.schedule(deltaX);
         }
-        fillListRight(mFirstPosition, mFirstItemLeft == Integer.MIN_VALUE ? firstLeft : mFirstItemLeft);
-        correctTooLeft();
-        mDataChanged = false;
-        mRecycler.scrapActiveViews();
-        invalidate();
+        prepareAhead(deltaX);
+        if (notify && mOnScrollListener != null) {
+            mOnScrollListener.onScroll(this, deltaX, getAdapterPosition(mFirstPosition), mFirstItemLeft);
+        }
+        return deltaX;
+    }
 
+    /**
+     * Recycles the children that are out of sight once the items moved by deltaX. Children are
+     * checked against their current position, before the move.
+     */
+    private void removeNonVisibleView(int deltaX) {
+        if (deltaX < 0) {
+            removeChildrenBefore(getViewportLeft() - deltaX);
+        } else if (deltaX > 0) {
+            int end = getViewportRight() - deltaX;
+            int childIndex = mFirstPosition + getChildCount() - 1;
+            while (getChildCount() > 0) {
+                View child = getChildAt(getChildCount() - 1);
+                if (getDecoratedLeft(child) < end) {
+                    break;
+                }
+                mRecycler.addScrapView(child, childIndex);
+                detachViewFromParent(child);
+                childIndex--;
+            }
+        }
+        mRecycler.removeSkippedScrap();
+    }
 
+    /**
+     * Scraps the children at the start that end at or left of start.
+     */
+    private void removeChildrenBefore(int start) {
+        int childIndex = mFirstPosition;
+        while (getChildCount() > 0) {
+            View child = getChildAt(0);
+            if (getDecoratedRight(child) > start) {
+                break;
+            }
+            mRecycler.addScrapView(child, childIndex);
+            detachViewFromParent(child);
+            childIndex++;
+        }
+        mFirstPosition = childIndex;
     }
 
-    private void correctTooLeft() {
-        final int childCount = getChildCount();
-        if (mFirstPosition + childCount == mItemCount && childCount > 0) {
-            int end = getRight() - getLeft() - getPaddingRight();
-            View lastChild = getChildAt(getChildCount() - 1);
-            View firstChild = getChildAt(0);
-            int rightOffset = end - lastChild.getRight();
-            if (rightOffset > 0 && (mFirstPosition > 0 || getPaddingLeft() - firstChild.getLeft() > 0)) {
-                if (mFirstPosition == 0) {
-                    rightOffset = Math.min(rightOffset, getPaddingLeft() - firstChild.getLeft());
+    class MyDataSetObserver extends DataSetObserver {
+
+        private Parcelable mInstanceState = null;
+
+        @Override
+        public void onChanged() {
+            mDataChanged = true;
+            mPrefetchTask.cancel();
+            if (mPreparer != null) {
+                mPreparer.cancelAll();
+            }
+            mItemCount = getAdapter().getCount();
+            if (mWidthCache != null) {
+                // items may have moved or changed content, with or without stable ids
+                mWidthCache.clear();
+            }
+            mOffsetIndexInvalid = true;
+
+            // Detect the case where a cursor that was previously invalidated has
+            // been repopulated with new data.
+            if (getAdapter().hasStableIds() && mInstanceState != null && mItemCount > 0) {
+                onRestoreInstanceState(mInstanceState);
+                mInstanceState = null;
+            }
+            requestLayout();
+        }
+
+        @Override
+        public void onInvalidated() {
+            mDataChanged = true;
+            mPrefetchTask.cancel();
+            if (mPreparer != null) {
+                mPreparer.cancelAll();
+            }
+            if (mWidthCache != null) {
+                mWidthCache.clear();
+            }
+            mOffsetIndexInvalid = true;
+
+            if (getAdapter().hasStableIds()) {
+                // Remember the current state for the case where our hosting activity is being
+                // stopped and later restarted
+                mInstanceState = onSaveInstanceState();
+            }
+
+            // Data is invalid so we should reset our state
+            mItemCount = 0;
+            requestLayout();
+        }
+
+    }
+
+
+    /**
+     * Drives flings and smooth scrolls from Choreographer frame callbacks, sampling the
+     * {@link ScrollModel} at each frame's timestamp. Below API 16 the runnable is posted instead.
+     */
+    private class FlingRunnable implements Runnable {
+        /**
+         * Tracks the decay of a fling scroll
+         */
+        private ScrollModel mModel;
+
+        /**
+         * X value reported by mModel on the previous frame
+         */
+        private int mLastFlingX;
+
+        private boolean mRunning;
+
+        /**
+         * Position the running animation snaps to, -1 if it doesn't snap.
+         */
+        private int mSnapPosition = -1;
+
+        /**
+         * Scroll offset the snapping animation started at.
+         */
+        private int mSnapStartOffset;
+
+        /**
+         * Created on the first frame posted on API 16 and above.
+         */
+        private FlingFrameCallback mFrameCallback;
+
+        public FlingRunnable() {
+            mModel = new ScrollModel.ScrollerModel(getContext());
+        }
+
+        void setModel(ScrollModel model) {
+            stop();
+            mModel = model;
+        }
+
+        private void startCommon() {
+            // Remove any pending flings
+            removeFrame();
+            mLastFlingX = 0;
+            mRunning = true;
+            if (mFlingLayersEnabled && !mFlingLayersActive && isHardwareAccelerated()) {
+                setFlingLayersActive(true);
+            }
+        }
+
+        /**
+         * Scrolls the content by distance pixels, positive values reveal items to the right.
+         */
+        public void startScroll(int distance, int duration) {
+            if (distance == 0) return;
+
+            startCommon();
+            mModel.scrollBy(distance, duration, System.nanoTime());
+            postFrame();
+        }
+
+        /**
+         * @param initialVelocity pixels per second, positive values reveal items to the right
+         */
+        public void startUsingVelocity(int initialVelocity) {
+            if (initialVelocity == 0) return;
+
+            startCommon();
+            mModel.fling(initialVelocity, System.nanoTime());
+            postFrame();
+        }
+
+        /**
+         * Flings to the snap target chosen from where a fling at initialVelocity would come to rest,
+         * or scrolls to the nearest target if initialVelocity is 0.
+         */
+        void startSnap(int initialVelocity) {
+            final long now = System.nanoTime();
+            final int current = getCurrentOffset();
+            int landing = current;
+            startCommon();
+            if (initialVelocity != 0) {
+                mModel.fling(initialVelocity, now);
+                landing += mModel.getFinalPosition();
+            }
+            mSnapPosition = findSnapPosition(current, landing, Integer.signum(initialVelocity));
+            mSnapStartOffset = current;
+            final int distance = getSnapOffset(mSnapPosition) - current;
+            if (initialVelocity == 0 || !mModel.setFinalPosition(distance)) {
+                if (distance == 0) {
+                    endFling();
+                    return;
                 }
-                for (int i = 0; i < childCount; i++) {
-                    final View v = getChildAt(i);
-                    v.offsetLeftAndRight(rightOffset);
+                // the model can't retarget its fling, so the snap is a plain animated scroll
+                mModel.scrollBy(distance, SMOOTH_SCROLL_DURATION, now);
+            }
+            postFrame();
+        }
+
+        public void stop() {
+            removeFrame();
+            endFling();
+        }
+
+        boolean isRunning() {
+            return mRunning;
+        }
+
+        private void endFling() {
+            /*
+             * Force the model's status to finished (without setting its
+             * position to the end)
+             */
+            mModel.stop();
+            mSnapPosition = -1;
+            if (mFlingLayersActive) {
+                setFlingLayersActive(false);
+            }
+            if (mRunning) {
+                mRunning = false;
+                reportMetrics();
+            }
+        }
+
+        private void postFrame() {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+                if (mFrameCallback == null) {
+                    mFrameCallback = new FlingFrameCallback();
                 }
-                if (mFirstPosition > 0) {
-                    fillListLeft(mFirstPosition - 1, firstChild.getLeft());
+                Choreographer.getInstance().postFrameCallback(mFrameCallback);
+            } else {
+                post(this);
+            }
+        }
+
+        private void removeFrame() {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN && mFrameCallback != null) {
+                Choreographer.getInstance().removeFrameCallback(mFrameCallback);
+            }
+            removeCallbacks(this);
+        }
+
+        @Override
+        public void run() {
+            doFrame(System.nanoTime());
+        }
+
+        void doFrame(long frameTimeNanos) {
+            if (!mRunning) {
+                return;
+            }
+            if (mItemCount == 0) {
+                endFling();
+                return;
+            }
+
+            mShouldStopFling = false;
+
+            final boolean more = mModel.computePosition(frameTimeNanos);
+            final int x = mModel.getPosition();
+
+            // Flip sign to convert finger direction to list items direction
+            // (e.g. finger moving left means items are moving to the left)
+            final int delta = mLastFlingX - x;
+
+            // Pretend that each frame of a fling scroll is a touch scroll. A step fills at most one
+            // screen, so a larger delta is applied in several steps rather than dropped, and the
+            // frame is invalidated once for all of them.
+            final int maxStep = Math.max(1, getWidth() - getPaddingLeft() - getPaddingRight() - 1);
+            int remaining = delta;
+            while (remaining != 0 && !mShouldStopFling) {
+                final int step = Math.max(-maxStep, Math.min(maxStep, remaining));
+                if (scrollItems(step, true) == 0) {
+                    break;
+                }
+                remaining -= step;
+            }
+            invalidate();
+
+            if (mOnScrollFrameListener != null) {
+                mOnScrollFrameListener.onScrollFrame(frameTimeNanos, delta - remaining);
+            }
+
+            if (more && !mShouldStopFling) {
+                mLastFlingX = x;
+                if (mSnapPosition >= 0) {
+                    // items measured on the way replace estimated widths, keep aiming at the target
+                    final int target = getSnapOffset(mSnapPosition) - mSnapStartOffset;
+                    if (target != mModel.getFinalPosition()) {
+                        mModel.setFinalPosition(target);
+                    }
                 }
+                postFrame();
+            } else {
+                endFling();
             }
         }
+
     }
 
-    private void fillListLeft(int startPos, int startLeft) {
-        int start = getPaddingLeft();
-        int nextLeft = startLeft;
-        int childIndex = startPos;
-        while (nextLeft >= start && childIndex >= 0) {
-            View child = obtainView(childIndex, nextLeft, false);
-            nextLeft = child.getLeft();
-            childIndex--;
+    /**
+     * Runs the frames of {@link #mFlingRunnable} at the Choreographer's frame time.
+     */
+    private class FlingFrameCallback implements Choreographer.FrameCallback {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            mFlingRunnable.doFrame(frameTimeNanos);
         }
-        mFirstPosition = childIndex + 1;
-
     }
 
-    private void correctTooRight() {
-        final int childCount = getChildCount();
-        if (mFirstPosition == 0 && childCount > 0) {
-            int start = getPaddingLeft();
-            View lastChild = getChildAt(getChildCount() - 1);
-            View firstChild = getChildAt(0);
-            int leftOffset = start - firstChild.getLeft();
-            if (leftOffset < 0) {
+
+    /**
+     * Animates all views touched by item updates with a single animator. Before an update the drawn
+     * left edge of every child is recorded. Afterwards children that were there slide from that edge,
+     * children revealed by the update slide in from where they would have been, next to their
+     * neighbours, and inserted items fade in. Views leaving the layout are moved to the overlay and
+     * reach the scrap heap only when the animation ends. Another update while one runs starts from
+     * where the views are drawn at that moment.
+     */
+    private class ItemAnimation extends AnimatorListenerAdapter implements ValueAnimator.AnimatorUpdateListener {
+
+        private final ArrayList<View> mViews = new ArrayList<View>();
+
+        private ValueAnimator mAnimator;
+
+        private int mDisappearingCount;
+
+        /**
+         * Set between {@link #recordPreLayout()} and {@link #animateChanges()}.
+         */
+        private boolean mInUpdate;
+
+        /**
+         * Set while the animator is stopped on purpose, its end must not finish the views.
+         */
+        private boolean mIgnoreEnd;
+
+        void recordPreLayout() {
+            mInUpdate = true;
+            final int childCount = getChildCount();
+            for (int i = 0; i < childCount; i++) {
+                final View child = getChildAt(i);
+                final LayoutParams lp = (LayoutParams) child.getLayoutParams();
+                lp.preLayoutLeft = getDecoratedLeft(child) + Math.round(child.getTranslationX());
+                lp.appearing = false;
+            }
+            // views already on their way out continue from where they are
+            for (int i = mViews.size() - 1; i >= 0; i--) {
+                final View view = mViews.get(i);
+                final LayoutParams lp = (LayoutParams) view.getLayoutParams();
+                if (lp.disappearing) {
+                    lp.animFromTranslation = view.getTranslationX();
+                    lp.animFromAlpha = view.getAlpha();
+                }
+            }
+        }
+
+        /**
+         * Moves a child that leaves the layout to the overlay, where it slides to its new place or, if
+         * its item was removed, fades out.
+         *
+         * @return false if the child has to be scrapped right away
+         */
+        boolean disappear(View child, int position, boolean removed) {
+            if (!mInUpdate || Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN_MR2) {
+                return false;
+            }
+            final LayoutParams lp = (LayoutParams) child.getLayoutParams();
+            if (!removed && lp.preLayoutLeft == LayoutParams.NO_PRE_LAYOUT_LEFT) {
+                return false;
+            }
+            final float from = removed ? child.getTranslationX() : lp.preLayoutLeft - getDecoratedLeft(child);
+            removeFlingLayer(child);
+            removeViewInLayout(child);
+            getOverlay().add(child);
+            lp.preLayoutLeft = LayoutParams.NO_PRE_LAYOUT_LEFT;
+            lp.appearing = false;
+            lp.disappearing = true;
+            lp.scrappedFromPosition = position;
+            mDisappearingCount++;
+            start(child, lp, from, child.getAlpha(), removed ? 0f : 1f);
+            return true;
+        }
+
+        void animateChanges() {
+            mInUpdate = false;
+            final int childCount = getChildCount();
+            // where each child was drawn before the update, relative to where it is now
+            int firstKnown = -1;
+            boolean chained = false;
+            int oldRight = 0;
+            for (int i = 0; i < childCount; i++) {
+                final View child = getChildAt(i);
+                final LayoutParams lp = (LayoutParams) child.getLayoutParams();
+                final int left = getDecoratedLeft(child);
+                int oldLeft;
+                if (lp.preLayoutLeft != LayoutParams.NO_PRE_LAYOUT_LEFT) {
+                    oldLeft = lp.preLayoutLeft;
+                    if (firstKnown < 0) {
+                        firstKnown = i;
+                    }
+                } else if (chained && !lp.appearing) {
+                    oldLeft = oldRight;
+                } else {
+                    oldLeft = left;
+                }
+                lp.animFromTranslation = oldLeft - left;
+                oldRight = oldLeft + getDecoratedRight(child) - left;
+                chained = true;
+            }
+            for (int i = firstKnown - 1; i >= 0; i--) {
+                final View child = getChildAt(i);
+                final LayoutParams lp = (LayoutParams) child.getLayoutParams();
+                if (!lp.appearing) {
+                    final View next = getChildAt(i + 1);
+                    final float nextOldLeft = getDecoratedLeft(next)
+                            + ((LayoutParams) next.getLayoutParams()).animFromTranslation;
+                    lp.animFromTranslation = nextOldLeft - getDecoratedRight(child);
+                }
+            }
+            if (firstKnown < 0) {
+                // nothing stayed on screen, there is nothing to slide from
                 for (int i = 0; i < childCount; i++) {
-                    final View v = getChildAt(i);
-                    v.offsetLeftAndRight(leftOffset);
+                    ((LayoutParams) getChildAt(i).getLayoutParams()).animFromTranslation = 0;
                 }
-                if (mFirstPosition + childCount < mItemCount) {
-                    fillListRight(mFirstPosition + childCount + 1, lastChild.getRight());
+            }
+
+            for (int i = 0; i < childCount; i++) {
+                final View child = getChildAt(i);
+                final LayoutParams lp = (LayoutParams) child.getLayoutParams();
+                if (lp.appearing) {
+                    start(child, lp, 0, 0f, 1f);
+                } else if (lp.animFromTranslation != 0 || lp.animating) {
+                    start(child, lp, lp.animFromTranslation, child.getAlpha(), 1f);
                 }
+                lp.preLayoutLeft = LayoutParams.NO_PRE_LAYOUT_LEFT;
+                lp.appearing = false;
+            }
+            if (mViews.isEmpty()) {
+                return;
             }
+            if (mAnimator == null) {
+                mAnimator = ValueAnimator.ofFloat(0f, 1f);
+                mAnimator.setInterpolator(new DecelerateInterpolator());
+                mAnimator.addUpdateListener(this);
+                mAnimator.addListener(this);
+            }
+            stopAnimator();
+            mAnimator.setDuration(mItemAnimationDuration);
+            mAnimator.start();
         }
-    }
 
-    private void fillListRight(int startPos, int startRight) {
-        int end = getRight() - getLeft() - getPaddingRight();
-        int nextRight = startRight;
-        int childIndex = startPos;
-        while (nextRight <= end && childIndex <= mAdapter.getCount() - 1) {
-            View child = obtainView(childIndex, nextRight, true);
-            nextRight = child.getRight();
-            childIndex++;
+        private void start(View view, LayoutParams lp, float fromTranslation, float fromAlpha, float toAlpha) {
+            lp.animFromTranslation = fromTranslation;
+            lp.animFromAlpha = fromAlpha;
+            lp.animToAlpha = toAlpha;
+            view.setTranslationX(fromTranslation);
+            view.setAlpha(fromAlpha);
+            if (!lp.animating) {
+                lp.animating = true;
+                mViews.add(view);
+            }
+        }
+
+        @Override
+        public void onAnimationUpdate(ValueAnimator animation) {
+            final float fraction = animation.getAnimatedFraction();
+            final ArrayList<View> views = mViews;
+            for (int i = views.size() - 1; i >= 0; i--) {
+                final View view = views.get(i);
+                final LayoutParams lp = (LayoutParams) view.getLayoutParams();
+                view.setTranslationX(lp.animFromTranslation * (1 - fraction));
+                view.setAlpha(lp.animFromAlpha + (lp.animToAlpha - lp.animFromAlpha) * fraction);
+            }
+        }
+
+        @Override
+        public void onAnimationEnd(Animator animation) {
+            if (!mIgnoreEnd) {
+                finish();
+            }
+        }
+
+        void offsetDisappearingViews(int delta) {
+            if (mDisappearingCount == 0) {
+                return;
+            }
+            for (int i = mViews.size() - 1; i >= 0; i--) {
+                final View view = mViews.get(i);
+                if (((LayoutParams) view.getLayoutParams()).disappearing) {
+                    view.offsetLeftAndRight(delta);
+                }
+            }
         }
-    }
 
-    private void setupChild(View child, int edge, boolean toRight, boolean isRecycled) {
-        LayoutParams p = (LayoutParams) child.getLayoutParams();
-        if (p == null) {
-            p = new LayoutParams(LayoutParams.WRAP_CONTENT,
-                    LayoutParams.MATCH_PARENT);
+        /**
+         * Stops animating a child that is scrapped by a scroll or a layout pass.
+         */
+        void cancel(View child) {
+            final LayoutParams lp = (LayoutParams) child.getLayoutParams();
+            lp.animating = false;
+            child.setTranslationX(0);
+            child.setAlpha(1f);
+            mViews.remove(child);
         }
-        if (isRecycled && !child.isLayoutRequested()) {
-            attachViewToParent(child, toRight ? -1 : 0, p);
 
-            int left = toRight ? edge : edge - child.getMeasuredWidth();
-            child.offsetLeftAndRight(left - child.getLeft());
-        } else {
-            addViewInLayout(child, toRight ? -1 : 0, p, true);
+        void end() {
+            stopAnimator();
+            finish();
+        }
 
-            int childHeightSpec = ViewGroup.getChildMeasureSpec(mHeightMeasureSpec,
-                    getPaddingTop() + getPaddingBottom(), p.height);
-            int lpWidth = p.width;
-            int childWidthSpec;
-            if (lpWidth > 0) {
-                childWidthSpec = MeasureSpec.makeMeasureSpec(lpWidth, MeasureSpec.EXACTLY);
-            } else {
-                childWidthSpec = MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED);
+        private void stopAnimator() {
+            if (mAnimator != null && mAnimator.isRunning()) {
+                mIgnoreEnd = true;
+                mAnimator.cancel();
+                mIgnoreEnd = false;
             }
-            child.measure(childWidthSpec, childHeightSpec);
-            int left = toRight ? edge : edge - child.getMeasuredWidth();
-            int right = left + child.getMeasuredWidth();
-            int top = getPaddingTop();
-            int bottom = top + child.getMeasuredHeight();
-            child.layout(left, top, right, bottom);
         }
-    }
 
-    private View obtainView(int position, int edge, boolean toRight) {
-        View child = mRecycler.getActiveView(position);
-        boolean isRecycle = true;
-        if (child == null) {
-            View scrapView = mRecycler.getScrapView(position);
-            if (scrapView != null) {
-                child = mAdapter.getView(position, scrapView, this);
-                if (child != scrapView) {
-                    isRecycle = false;
-                    mRecycler.addScrapView(scrapView, position);
+        private void finish() {
+            mInUpdate = false;
+            final ArrayList<View> views = mViews;
+            final int count = views.size();
+            if (count == 0) {
+                return;
+            }
+            for (int i = 0; i < count; i++) {
+                final View view = views.get(i);
+                final LayoutParams lp = (LayoutParams) view.getLayoutParams();
+                lp.animating = false;
+                view.setTranslationX(0);
+                view.setAlpha(1f);
+                if (lp.disappearing) {
+                    lp.disappearing = false;
+                    // only disappear() sets the flag, and it only moves views to the overlay on API 18
+                    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+                        getOverlay().remove(view);
+                    }
+                    // the view left the window with the overlay and must be added again
+                    lp.forceAdd = true;
+                    mRecycler.addScrapView(view, lp.scrappedFromPosition);
                 }
-            } else {
-                isRecycle = false;
-                child = mAdapter.getView(position, null, this);
             }
+            views.clear();
+            mDisappearingCount = 0;
+            mRecycler.removeSkippedScrap();
+            mRecycler.pruneScrapViews();
+            invalidate();
         }
-        setupChild(child, edge, toRight, isRecycle);
-        return child;
     }
 
-    public boolean trackMotionScroll(int deltaX) {
-        return trackMotionScroll(deltaX, true);
+    @Override
+    protected LayoutParams generateDefaultLayoutParams() {
+        return new LayoutParams(LayoutParams.WRAP_CONTENT, LayoutParams.MATCH_PARENT);
+    }
+
+    @Override
+    public LayoutParams generateLayoutParams(AttributeSet attrs) {
+        return new LayoutParams(getContext(), attrs);
+    }
+
+    @Override
+    protected LayoutParams generateLayoutParams(ViewGroup.LayoutParams p) {
+        return new LayoutParams(p);
+    }
+
+    @Override
+    protected boolean checkLayoutParams(ViewGroup.LayoutParams p) {
+        return p instanceof LayoutParams;
     }
 
     /**
-     * @param deltaX
-     * @param notify true to call mOnScrollListener.onScroll(), false otherwise
-     * @return
+     * Adds offsets around items and draws in them or over them, without a view per divider.
+     * Decorations are asked for offsets when an item is laid out and draw once per frame for all
+     * visible children, so they should keep whatever they draw with, e.g. a Paint, in fields.
      */
-    public boolean trackMotionScroll(int deltaX, boolean notify) {
-        ViewParent parent = getParent();
-        if (parent != null) {
-            parent.requestDisallowInterceptTouchEvent(true);
-        }
-        final int firstPosition = mFirstPosition;
-        final int lastPosition = mFirstPosition + getChildCount() - 1;
+    public abstract static class ItemDecoration {
 
-        //see whether to scroll or not
-        if (firstPosition == 0 && deltaX > 0) {
-            View firstChild = getChildAt(0);
-            int leftOffset = getPaddingLeft() - firstChild.getLeft();
-            if (leftOffset <= 0) {
-                mShouldStopFling = true;
-                return false;
-            }
-            deltaX = Math.min(leftOffset, deltaX);
-        } else if (lastPosition == mItemCount - 1 && deltaX < 0) {
-            View lastChild = getChildAt(lastPosition - firstPosition);
-            int rightOffset = getRight() - getLeft() - lastChild.getRight() - getPaddingRight();
-            if (rightOffset >= 0) {
-                mShouldStopFling = true;
-                return false;
-            }
-            deltaX = -Math.min(Math.abs(rightOffset), Math.abs(deltaX));
+        /**
+         * Sets the space to reserve around the item at position. All fields of outRect are 0 when
+         * this is called.
+         */
+        public void getItemOffsets(Rect outRect, int position, SimpleHorizontalListView parent) {
         }
 
-        removeNonVisibleView(deltaX);
-
-        final int childCount = getChildCount();
-        for (int i = 0; i < childCount; i++) {
-            final View v = getChildAt(i);
-            v.offsetLeftAndRight(deltaX);
-        }
-        if (deltaX < 0) {
-            //gesture is moving towards left
-            fillListRight(lastPosition + 1, getChildAt(childCount - 1).getRight());
-            correctTooLeft();
-        } else if (deltaX > 0) {
-            //gesture is moving towards right
-            fillListLeft(firstPosition - 1, getChildAt(0).getLeft());
-            correctTooRight();
-        }
-        mFirstItemLeft = getChildAt(0).getLeft();
-        if (notify && mOnScrollListener != null) {
-            mOnScrollListener.onScroll(this, deltaX, mFirstPosition, mFirstItemLeft);
+        /**
+         * Draws below the children.
+         */
+        public void onDraw(Canvas canvas, SimpleHorizontalListView parent) {
         }
-        invalidate();
-        return true;
-    }
 
-    private void removeNonVisibleView(int deltaX) {
-        if (deltaX < 0) {
-            int start = getPaddingLeft() - deltaX;
-            int childIndex = mFirstPosition;
-            while (childIndex < mItemCount) {
-                View child = getChildAt(0);
-                if (child.getRight() >= start) {
-                    break;
-                }
-                mRecycler.addScrapView(child, childIndex);
-                detachViewFromParent(child);
-                childIndex++;
-            }
-            mFirstPosition = childIndex;
-        } else if (deltaX > 0) {
-            int end = getRight() - getLeft() - getPaddingRight() - deltaX;
-            int childIndex = mFirstPosition + getChildCount() - 1;
-            while (childIndex >= 0) {
-                View child = getChildAt(getChildCount() - 1);
-                if (child.getLeft() <= end) {
-                    break;
-                }
-                mRecycler.addScrapView(child, childIndex);
-                detachViewFromParent(child);
-                childIndex--;
-            }
+        /**
+         * Draws above the children.
+         */
+        public void onDrawOver(Canvas canvas, SimpleHorizontalListView parent) {
         }
     }
 
-    class MyDataSetObserver extends DataSetObserver {
+    /**
+     * Draws a divider of a single color between items.
+     */
+    public static class DividerDecoration extends ItemDecoration {
 
-        private Parcelable mInstanceState = null;
+        private final Paint mPaint = new Paint();
 
-        @Override
-        public void onChanged() {
-            mDataChanged = true;
-            mItemCount = getAdapter().getCount();
+        private final int mWidth;
 
-            // Detect the case where a cursor that was previously invalidated has
-            // been repopulated with new data.
-            if (getAdapter().hasStableIds() && mInstanceState != null && mItemCount > 0) {
-                onRestoreInstanceState(mInstanceState);
-                mInstanceState = null;
-            }
-            requestLayout();
+        public DividerDecoration(int color, int width) {
+            mPaint.setColor(color);
+            mWidth = width;
         }
 
         @Override
-        public void onInvalidated() {
-            mDataChanged = true;
-
-            if (getAdapter().hasStableIds()) {
-                // Remember the current state for the case where our hosting activity is being
-                // stopped and later restarted
-                mInstanceState = onSaveInstanceState();
+        public void getItemOffsets(Rect outRect, int position, SimpleHorizontalListView parent) {
+            final int spanCount = parent.getSpanCount();
+            if (parent.isCircular() || position / spanCount < (parent.getCount() - 1) / spanCount) {
+                outRect.right = mWidth;
             }
-
-            // Data is invalid so we should reset our state
-            mItemCount = 0;
-            requestLayout();
         }
 
+        @Override
+        public void onDraw(Canvas canvas, SimpleHorizontalListView parent) {
+            final int first = parent.getFirstVisiblePosition();
+            final int spanCount = parent.getSpanCount();
+            final int lastColumn = (parent.getCount() - 1) / spanCount;
+            final int top = parent.getPaddingTop();
+            final int bottom = parent.getHeight() - parent.getPaddingBottom();
+            final boolean circular = parent.isCircular();
+            // one divider after every column but the last, which is followed by the first when circular
+            for (int i = 0; i < parent.getChildCount() && (circular || (first + i) / spanCount < lastColumn); i += spanCount) {
+                final int left = parent.getChildAt(i).getRight();
+                canvas.drawRect(left, top, left + mWidth, bottom, mPaint);
+            }
+        }
     }
 
+    static class SavedState extends BaseSavedState {
 
-    private class FlingRunnable implements Runnable {
-        /**
-         * Tracks the decay of a fling scroll
-         */
-        private Scroller mScroller;
+        int firstPosition = INVALID_POSITION;
 
         /**
-         * X value reported by mScroller on the previous fling
+         * Left edge of the first item relative to the left padding.
          */
-        private int mLastFlingX;
+        int firstItemLeft;
 
-        public FlingRunnable() {
-            mScroller = new Scroller(getContext());
-        }
+        long firstId = INVALID_ROW_ID;
 
-        private void startCommon() {
-            // Remove any pending flings
-            removeCallbacks(this);
+        SavedState(Parcelable superState) {
+            super(superState);
         }
 
-        public void startUsingVelocity(int initialVelocity) {
-            if (initialVelocity == 0) return;
+        private SavedState(Parcel in) {
+            super(in);
+            firstPosition = in.readInt();
+            firstItemLeft = in.readInt();
+            firstId = in.readLong();
+        }
 
-            startCommon();
+        @Override
+        public void writeToParcel(Parcel out, int flags) {
+            super.writeToParcel(out, flags);
+            out.writeInt(firstPosition);
+            out.writeInt(firstItemLeft);
+            out.writeLong(firstId);
+        }
 
-            int initialX = initialVelocity < 0 ? Integer.MAX_VALUE : 0;
-            mLastFlingX = initialX;
-            mScroller.fling(initialX, 0, initialVelocity, 0,
-                    0, Integer.MAX_VALUE, 0, Integer.MAX_VALUE);
-            post(this);
+        @Override
+        public String toString() {
+            return "SimpleHorizontalListView.SavedState{firstPosition=" + firstPosition
+                    + " firstItemLeft=" + firstItemLeft + " firstId=" + firstId + "}";
         }
 
+        public static final Parcelable.Creator<SavedState> CREATOR = new Parcelable.Creator<SavedState>() {
+            @Override
+            public SavedState createFromParcel(Parcel in) {
+                return new SavedState(in);
+            }
 
-        public void stop() {
-            removeCallbacks(this);
-            endFling();
-        }
+            @Override
+            public SavedState[] newArray(int size) {
+                return new SavedState[size];
+            }
+        };
+    }
 
-        private void endFling() {
-            /*
-             * Force the scroller's status to finished (without setting its
-             * position to the end)
-             */
-            mScroller.forceFinished(true);
+    public static class LayoutParams extends ViewGroup.LayoutParams {
+        /**
+         * View type for this view, as returned by
+         * {@link android.widget.Adapter#getItemViewType(int) }
+         */
+        int viewType;
 
-        }
+        int scrappedFromPosition;
 
-        @Override
-        public void run() {
+        /**
+         * Index of this view inside the {@link ScrapHeap} holding it, only meaningful while scrapped.
+         */
+        int scrapIndex;
 
-            if (mItemCount == 0) {
-                endFling();
-                return;
-            }
+        /**
+         * Set while the view has never been added to this view, e.g. a view inflated ahead of time.
+         * Such a view must be added rather than re-attached.
+         */
+        boolean forceAdd;
 
-            mShouldStopFling = false;
+        /**
+         * Set while the view is drawn into a hardware layer for a fling.
+         */
+        boolean flingLayer;
 
-            final Scroller scroller = mScroller;
-            boolean more = scroller.computeScrollOffset();
-            final int x = scroller.getCurrX();
+        /**
+         * Space decorations reserve around the view.
+         */
+        final Rect decorInsets = new Rect();
 
-            // Flip sign to convert finger direction to list items direction
-            // (e.g. finger moving down means list is moving towards the top)
-            int delta = mLastFlingX - x;
+        static final int NO_PRE_LAYOUT_LEFT = Integer.MIN_VALUE;
 
-            // Pretend that each frame of a fling scroll is a touch scroll
-            if (delta > 0) {
-                // Don't fling more than 1 screen
-                delta = Math.min(getWidth() - getPaddingLeft() - getPaddingRight() - 1, delta);
-            } else {
-                // Don't fling more than 1 screen
-                delta = Math.max(-(getWidth() - getPaddingLeft() - getPaddingRight() - 1), delta);
-            }
+        /**
+         * Where the view was drawn before the item update that is being applied.
+         */
+        int preLayoutLeft = NO_PRE_LAYOUT_LEFT;
 
-            trackMotionScroll(delta);
+        /**
+         * Set for views of items inserted by the update that is being applied.
+         */
+        boolean appearing;
 
-            if (more && !mShouldStopFling) {
-                mLastFlingX = x;
-                post(this);
-            } else {
-                endFling();
-            }
-        }
+        /**
+         * Set while the view is animated by {@link ItemAnimation}.
+         */
+        boolean animating;
 
-    }
+        /**
+         * Set while the view fades or slides out in the overlay after it left the layout.
+         */
+        boolean disappearing;
 
+        float animFromTranslation;
 
-    public static class LayoutParams extends ViewGroup.LayoutParams {
-        int scrappedFromPosition;
+        float animFromAlpha;
+
+        float animToAlpha;
 
         public LayoutParams(Context c, AttributeSet attrs) {
             super(c, attrs);
@@ -558,59 +3032,181 @@ public class SimpleHorizontalListView extends AdapterView<ListAdapter> {
     }
 
 
-    protected boolean onFling(MotionEvent e1, MotionEvent e2, float velocityX, float velocityY) {
-        // Fling the gallery!
-        mFlingRunnable.startUsingVelocity((int) -velocityX);
-        return true;
-    }
-
-
     private GestureDetector.OnGestureListener mOnGestureListener = new GestureDetector.SimpleOnGestureListener() {
 
         @Override
         public boolean onDown(MotionEvent e) {
-            mFlingRunnable.stop();
             return true;
         }
 
         @Override
-        public boolean onFling(MotionEvent e1, MotionEvent e2, float velocityX, float velocityY) {
-            return SimpleHorizontalListView.this.onFling(e1, e2, velocityX, velocityY);
+        public boolean onSingleTapConfirmed(MotionEvent e) {
+            Rect viewRect = mTouchFrame;
+            if (viewRect == null) {
+                mTouchFrame = new Rect();
+                viewRect = mTouchFrame;
+            }
+            for (int i = 0; i < getChildCount(); i++) {
+                View child = getChildAt(i);
+                int left = child.getLeft();
+                int right = child.getRight();
+                int top = child.getTop();
+                int bottom = child.getBottom();
+                viewRect.set(left, top, right, bottom);
+                if (viewRect.contains((int) e.getX() + getScrollX(), (int) e.getY())) {
+                    if (mOnItemClicked != null) {
+                        final int position = getAdapterPosition(mFirstPosition + i);
+                        mOnItemClicked.onItemClick(SimpleHorizontalListView.this, child, position, mAdapter.getItemId(position));
+                    }
+                    return true;
+                }
+            }
+            return false;
+        }
+
+    };
+
+    public void setOnScrollListener(OnScrollListener listener) {
+        mOnScrollListener = listener;
+    }
+
+    public interface OnScrollListener {
+        void onScroll(View view, int deltaX, int firstPosition, int firstItemLeft);
+    }
+
+    /**
+     * Reports how far each frame of a fling or smooth scroll moved the items, to check animations
+     * for uneven steps.
+     */
+    public void setOnScrollFrameListener(OnScrollFrameListener listener) {
+        mOnScrollFrameListener = listener;
+    }
+
+    public interface OnScrollFrameListener {
+        /**
+         * @param frameTimeNanos timestamp of the frame the scroll was computed for
+         * @param deltaX         pixels the items moved, negative values reveal items to the right
+         */
+        void onScrollFrame(long frameTimeNanos, int deltaX);
+    }
+
+    /**
+     * Sets the model computing flings and smooth scrolls, e.g. {@link ScrollModel.OverScrollerModel}
+     * or {@link ScrollModel.SpringModel}. Defaults to {@link ScrollModel.ScrollerModel}.
+     */
+    public void setScrollModel(ScrollModel model) {
+        mFlingRunnable.setModel(model != null ? model : new ScrollModel.ScrollerModel(getContext()));
+    }
+
+    /**
+     * Starts or stops recording {@link ScrollMetrics}. While disabled the view only checks a null
+     * field where it would record, so metrics can stay compiled into production builds.
+     */
+    public void setMetricsEnabled(boolean enabled) {
+        if (enabled && mMetrics == null) {
+            mMetrics = new ScrollMetrics();
+            mMetrics.recordScrapSize(mRecycler.getScrapCount());
+        } else if (!enabled) {
+            mMetrics = null;
         }
+    }
+
+    public boolean isMetricsEnabled() {
+        return mMetrics != null;
+    }
+
+    /**
+     * @return a snapshot of what was recorded since metrics were enabled or last reset, or null if
+     * metrics are disabled
+     */
+    public ScrollMetrics getMetrics() {
+        return mMetrics != null ? new ScrollMetrics(mMetrics) : null;
+    }
 
-        @Override
-        public boolean onScroll(MotionEvent e1, MotionEvent e2, float distanceX, float distanceY) {
-            return trackMotionScroll(-(int) distanceX);
+    public void resetMetrics() {
+        if (mMetrics != null) {
+            mMetrics.reset();
         }
+    }
 
-        @Override
-        public boolean onSingleTapConfirmed(MotionEvent e) {
-            Rect viewRect = new Rect();
-            for (int i = 0; i < getChildCount(); i++) {
-                View child = getChildAt(i);
-                int left = child.getLeft();
-                int right = child.getRight();
-                int top = child.getTop();
-                int bottom = child.getBottom();
-                viewRect.set(left, top, right, bottom);
-                if (viewRect.contains((int) e.getX(), (int) e.getY())) {
-                    if (mOnItemClicked != null) {
-                        mOnItemClicked.onItemClick(SimpleHorizontalListView.this, child, mFirstPosition + i, mAdapter.getItemId(mFirstPosition + i));
-                    }
-                    return true;
-                }
-            }
+    /**
+     * Hands the listener the metrics of every scroll when the list comes to rest, i.e. after a drag
+     * without fling, a fling or a smooth scroll, and resets them for the next one.
+     */
+    public void setOnMetricsListener(OnMetricsListener listener) {
+        mOnMetricsListener = listener;
+    }
+
+    /**
+     * Runs the frame of a fling or smooth scroll the Choreographer would run at frameTimeNanos, so
+     * that tests and benchmarks can drive animations without waiting for vsync.
+     *
+     * @return true if the animation continues after this frame
+     */
+    boolean doScrollFrame(long frameTimeNanos) {
+        mFlingRunnable.doFrame(frameTimeNanos);
+        return mFlingRunnable.isRunning();
+    }
+
+    /**
+     * Runs the prefetch the last scroll step scheduled as if the frame had just been drawn, so that
+     * tests can check it without waiting for vsync.
+     *
+     * @return false if no prefetch was pending
+     */
+    boolean doPrefetch() {
+        if (!mPrefetchTask.mScheduled) {
             return false;
         }
+        mPrefetchTask.mFrameStartNanos = System.nanoTime();
+        mPrefetchTask.run();
+        return true;
+    }
 
-    };
+    public interface OnMetricsListener {
+        void onScrollMetrics(SimpleHorizontalListView view, ScrollMetrics metrics);
+    }
 
-    public void setOnScrollListener(OnScrollListener listener) {
-        mOnScrollListener = listener;
+    private void reportMetrics() {
+        if (mMetrics != null && mOnMetricsListener != null) {
+            final ScrollMetrics snapshot = new ScrollMetrics(mMetrics);
+            mMetrics.reset();
+            mOnMetricsListener.onScrollMetrics(this, snapshot);
+        }
     }
 
-    public interface OnScrollListener {
-        void onScroll(View view, int deltaX, int firstPosition, int firstItemLeft);
+    /**
+     * Optional interface for adapters whose item widths are known without measuring, e.g. fixed size
+     * chips. Items with a known width are measured with an exact width spec, and views that already
+     * have that width are not measured at all.
+     */
+    public interface ItemWidthAdapter {
+        /**
+         * @return the width in pixels of the item at position, or 0 if it has to be measured
+         */
+        int getItemWidth(int position);
+    }
+
+    /**
+     * Optional interface for adapters that split binding into an expensive, view independent prepare
+     * step (formatting, text layout, decode sizing) and a cheap bind step. With an executor set by
+     * {@link #setPrepareExecutor(Executor)} items are prepared ahead of the viewport on that executor.
+     */
+    public interface PreparingAdapter extends ListAdapter {
+        /**
+         * Called on the prepare executor, must not touch views.
+         *
+         * @return whatever {@link #getView(int, View, ViewGroup, Object)} needs to bind position
+         */
+        Object prepareItem(int position);
+
+        /**
+         * Called instead of {@link ListAdapter#getView(int, View, ViewGroup)}.
+         *
+         * @param prepared the result of {@link #prepareItem(int)} for position, or null if it wasn't
+         *                 ready in time, in which case the adapter has to prepare the item itself
+         */
+        View getView(int position, View convertView, ViewGroup parent, Object prepared);
     }
 
     public interface RecyclerListener {
@@ -628,9 +3224,75 @@ public class SimpleHorizontalListView extends AdapterView<ListAdapter> {
         mRecycler.mRecyclerListener = listener;
     }
 
+    /**
+     * Limits the number of detached views of viewType kept for reuse. Extra views are dropped while
+     * scrolling as well as on layout. Without a limit a view type keeps as many views as there are
+     * children on screen, but at least {@link #DEFAULT_MAX_SCRAP}.
+     *
+     * @param viewType view type as returned by {@link ListAdapter#getItemViewType(int)}
+     * @param max      the maximum number of scrap views of viewType, or a negative value to restore
+     *                 the default
+     */
+    public void setMaxRecycledViews(int viewType, int max) {
+        if (max < 0) {
+            mRecycler.mMaxScrap.delete(viewType);
+        } else {
+            mRecycler.mMaxScrap.put(viewType, max);
+        }
+        mRecycler.pruneScrapViews();
+    }
+
+    /**
+     * Shares item views with other lists using the same pool. Views this list can't keep in its own
+     * scrap heap, and all of its views when it gets another adapter, go to the pool, and views of a
+     * type its scrap heap has none of are taken from there.
+     *
+     * @param pool the pool to share, or null to recycle only within this list
+     */
+    public void setRecycledViewPool(RecycledViewPool pool) {
+        mRecycler.mViewPool = pool;
+    }
+
+    public RecycledViewPool getRecycledViewPool() {
+        return mRecycler.mViewPool;
+    }
+
+    /**
+     * @return the number of detached views currently waiting for reuse, over all view types
+     */
+    public int getRecycledViewCount() {
+        return mRecycler.getScrapCount();
+    }
+
+    /**
+     * @return the number of detached views of viewType currently waiting for reuse
+     */
+    public int getRecycledViewCount(int viewType) {
+        return mRecycler.getScrapCount(viewType);
+    }
+
+    /**
+     * @return the number of scrap views dropped so far because their view type exceeded its limit
+     */
+    public int getEvictedViewCount() {
+        return mRecycler.mEvictedCount;
+    }
+
+    /**
+     * @return true if view is waiting for reuse in a scrap heap, for invariant checks in tests
+     */
+    boolean isScrapView(View view) {
+        return mRecycler.containsScrap(view);
+    }
+
     class RecycleBin {
         private RecyclerListener mRecyclerListener;
 
+        /**
+         * Views shared with other lists, or null.
+         */
+        private RecycledViewPool mViewPool;
+
         /**
          * The position of the first view stored in mActiveViews.
          */
@@ -644,31 +3306,76 @@ public class SimpleHorizontalListView extends AdapterView<ListAdapter> {
          */
         private View[] mActiveViews = new View[0];
 
+        /**
+         * Unsorted views that can be used by the adapter as a convert view, one heap per view type.
+         */
+        private ScrapHeap[] mScrapViews;
+
+        private int mViewTypeCount;
+
+        private ScrapHeap mCurrentScrap;
+
+        /**
+         * Detached views of a type that must not be recycled. They are removed from the parent
+         * once the current layout or scroll step is done with them.
+         */
+        private ArrayList<View> mSkippedScrap;
+
+        /**
+         * Scrap limits set by {@link #setMaxRecycledViews(int, int)}, keyed by view type.
+         */
+        private final SparseIntArray mMaxScrap = new SparseIntArray();
 
-        private ArrayList<View> mCurrentScrap;
+        /**
+         * Number of scrap views dropped by {@link #pruneScrapViews()} so far, not counting the views
+         * handed to the shared pool, which counts its own drops.
+         */
+        private int mEvictedCount;
 
         public RecycleBin() {
-            mCurrentScrap = new ArrayList<View>();
+            setViewTypeCount(1);
+        }
 
+        public void setViewTypeCount(int viewTypeCount) {
+            if (viewTypeCount < 1) {
+                throw new IllegalArgumentException("Can't have a viewTypeCount < 1");
+            }
+            ScrapHeap[] scrapViews = new ScrapHeap[viewTypeCount];
+            for (int i = 0; i < viewTypeCount; i++) {
+                scrapViews[i] = new ScrapHeap();
+            }
+            mViewTypeCount = viewTypeCount;
+            mCurrentScrap = scrapViews[0];
+            mScrapViews = scrapViews;
         }
 
         public void markChildrenDirty() {
-            final ArrayList<View> scrap = mCurrentScrap;
-            final int scrapCount = scrap.size();
-            for (int i = 0; i < scrapCount; i++) {
-                scrap.get(i).forceLayout();
+            final int typeCount = mViewTypeCount;
+            for (int i = 0; i < typeCount; i++) {
+                final ScrapHeap scrap = mScrapViews[i];
+                final int scrapCount = scrap.size();
+                for (int j = 0; j < scrapCount; j++) {
+                    scrap.get(j).forceLayout();
+                }
             }
         }
 
+        public boolean shouldRecycleViewType(int viewType) {
+            return viewType >= 0;
+        }
+
         /**
          * Clears the scrap heap.
          */
         void clear() {
-            final ArrayList<View> scrap = mCurrentScrap;
-            final int scrapCount = scrap.size();
-            for (int i = 0; i < scrapCount; i++) {
-                removeDetachedView(scrap.remove(scrapCount - 1 - i), false);
+            final int typeCount = mViewTypeCount;
+            for (int i = 0; i < typeCount; i++) {
+                final ScrapHeap scrap = mScrapViews[i];
+                while (scrap.size() > 0) {
+                    discardScrapView(scrap.pop());
+                }
             }
+            removeSkippedScrap();
         }
 
 
@@ -717,14 +3424,30 @@ public class SimpleHorizontalListView extends AdapterView<ListAdapter> {
         }
 
         /**
-         * @return A view from the ScrapViews collection. These are unordered.
+         * @return A view from the ScrapViews collection of the view type of position, or from the
+         * shared pool if there is none. These are unordered.
          */
         View getScrapView(int position) {
-            return retrieveFromScrap(mCurrentScrap, position);
+            // scrap is matched by the real adapter position, so a circular list reuses the same views every lap
+            position = getAdapterPosition(position);
+            final int whichScrap = mAdapter.getItemViewType(position);
+            if (!shouldRecycleViewType(whichScrap)) {
+                return null;
+            }
+            View scrap = null;
+            if (mViewTypeCount == 1) {
+                scrap = mCurrentScrap.retrieve(position);
+            } else if (whichScrap < mScrapViews.length) {
+                scrap = mScrapViews[whichScrap].retrieve(position);
+            }
+            if (scrap == null && mViewPool != null) {
+                scrap = mViewPool.getRecycledView(whichScrap);
+            }
+            return scrap;
         }
 
         /**
-         * Put a view into the ScapViews list. These views are unordered.
+         * Put a view into the ScapViews list of its view type. These views are unordered.
          *
          * @param scrap The view to add
          */
@@ -733,33 +3456,85 @@ public class SimpleHorizontalListView extends AdapterView<ListAdapter> {
             if (lp == null) {
                 return;
             }
-            lp.scrappedFromPosition = position;
-            mCurrentScrap.add(scrap);
+            lp.scrappedFromPosition = getAdapterPosition(position);
+            // a waiting view doesn't need to hold on to its layer
+            removeFlingLayer(scrap);
+            lp.preLayoutLeft = LayoutParams.NO_PRE_LAYOUT_LEFT;
+            lp.appearing = false;
+            if (lp.animating) {
+                mItemAnimation.cancel(scrap);
+            }
+
+            // Don't put views that should be ignored into the scrap heap
+            final int viewType = lp.viewType;
+            if (!shouldRecycleViewType(viewType) || viewType >= mViewTypeCount) {
+                getSkippedScrap().add(scrap);
+                return;
+            }
+
+            if (mViewTypeCount == 1) {
+                mCurrentScrap.add(scrap);
+            } else {
+                mScrapViews[viewType].add(scrap);
+            }
 
             if (mRecyclerListener != null) {
                 mRecyclerListener.onMovedToScrapHeap(scrap);
             }
         }
 
+        private ArrayList<View> getSkippedScrap() {
+            if (mSkippedScrap == null) {
+                mSkippedScrap = new ArrayList<View>();
+            }
+            return mSkippedScrap;
+        }
+
+        /**
+         * Finish the removal of any views that skipped the scrap heap.
+         */
+        void removeSkippedScrap() {
+            if (mSkippedScrap == null) {
+                return;
+            }
+            final int count = mSkippedScrap.size();
+            for (int i = 0; i < count; i++) {
+                removeDetachedView(mSkippedScrap.get(i), false);
+            }
+            mSkippedScrap.clear();
+        }
+
         /**
          * Move all views remaining in mActiveViews to mScrapViews.
          */
         void scrapActiveViews() {
             final View[] activeViews = mActiveViews;
             final boolean hasListener = mRecyclerListener != null;
+            final boolean multipleScraps = mViewTypeCount > 1;
 
-            ArrayList<View> scrapViews = mCurrentScrap;
+            ScrapHeap scrapViews = mCurrentScrap;
             final int count = activeViews.length;
             for (int i = count - 1; i >= 0; i--) {
                 final View victim = activeViews[i];
                 if (victim != null) {
                     final SimpleHorizontalListView.LayoutParams lp
                             = (SimpleHorizontalListView.LayoutParams) victim.getLayoutParams();
+                    final int whichScrap = lp.viewType;
 
                     activeViews[i] = null;
+                    if (lp.animating) {
+                        mItemAnimation.cancel(victim);
+                    }
 
+                    if (!shouldRecycleViewType(whichScrap) || whichScrap >= mViewTypeCount) {
+                        getSkippedScrap().add(victim);
+                        continue;
+                    }
 
-                    lp.scrappedFromPosition = mFirstActivePosition + i;
+                    if (multipleScraps) {
+                        scrapViews = mScrapViews[whichScrap];
+                    }
+                    lp.scrappedFromPosition = getAdapterPosition(mFirstActivePosition + i);
                     scrapViews.add(victim);
 
                     if (hasListener) {
@@ -772,52 +3547,349 @@ public class SimpleHorizontalListView extends AdapterView<ListAdapter> {
         }
 
         /**
-         * Makes sure that the size of mScrapViews does not exceed the size of mActiveViews.
-         * (This can happen if an adapter does not recycle its views).
+         * Makes sure that the size of each scrap heap does not exceed its limit.
+         * (This can happen if an adapter does not recycle its views, or after a long fling).
+         */
+        void pruneScrapViews() {
+            final int viewTypeCount = mViewTypeCount;
+            final ScrapHeap[] scrapViews = mScrapViews;
+            for (int i = 0; i < viewTypeCount; ++i) {
+                final ScrapHeap scrapPile = scrapViews[i];
+                final int extras = scrapPile.size() - getMaxScrap(i);
+                for (int j = 0; j < extras; j++) {
+                    discardScrapView(scrapPile.pop());
+                    if (mViewPool == null) {
+                        mEvictedCount++;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Finishes the removal of a scrap view this list doesn't keep, handing it to the shared pool
+         * if there is one.
          */
-        private void pruneScrapViews() {
-            final int maxViews = mActiveViews.length;
-            final ArrayList<View> scrapPile = mCurrentScrap;
-            int size = scrapPile.size();
-            final int extras = size - maxViews;
-            size--;
-            for (int j = 0; j < extras; j++) {
-                removeDetachedView(scrapPile.remove(size--), false);
+        private void discardScrapView(View scrap) {
+            removeDetachedView(scrap, false);
+            if (mViewPool != null) {
+                final SimpleHorizontalListView.LayoutParams lp
+                        = (SimpleHorizontalListView.LayoutParams) scrap.getLayoutParams();
+                // detached from the window now, whichever list takes it has to add it
+                lp.forceAdd = true;
+                mViewPool.putRecycledView(scrap, lp.viewType);
+            }
+        }
+
+        int getMaxScrap(int viewType) {
+            final int max = mMaxScrap.get(viewType, -1);
+            if (max >= 0) {
+                return max;
+            }
+            return Math.max(DEFAULT_MAX_SCRAP, getChildCount());
+        }
+
+        boolean containsScrap(View view) {
+            for (int i = 0; i < mViewTypeCount; i++) {
+                if (mScrapViews[i].contains(view)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        int getScrapCount() {
+            int count = 0;
+            for (int i = 0; i < mViewTypeCount; i++) {
+                count += mScrapViews[i].size();
+            }
+            return count;
+        }
+
+        int getScrapCount(int viewType) {
+            if (viewType < 0 || viewType >= mViewTypeCount) {
+                return 0;
             }
+            return mScrapViews[viewType].size();
         }
 
         /**
          * Puts all views in the scrap heap into the supplied list.
          */
         void reclaimScrapViews(List<View> views) {
-            views.addAll(mCurrentScrap);
+            final int viewTypeCount = mViewTypeCount;
+            final ScrapHeap[] scrapViews = mScrapViews;
+            for (int i = 0; i < viewTypeCount; ++i) {
+                final ScrapHeap scrapPile = scrapViews[i];
+                final int size = scrapPile.size();
+                for (int j = 0; j < size; j++) {
+                    views.add(scrapPile.get(j));
+                }
+            }
+        }
+
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        float refreshRate = 60f;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1 && !isInEditMode()) {
+            final Display display = getDisplay();
+            if (display != null && display.getRefreshRate() >= 30f) {
+                refreshRate = display.getRefreshRate();
+            }
+        }
+        mPrefetchTask.mFrameIntervalNanos = (long) (1000000000 / refreshRate);
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        mFlingRunnable.stop();
+        endItemAnimations();
+        getScrollingChildHelper().onDetachedFromWindow();
+        mPrefetchTask.cancel();
+        if (mPreparer != null) {
+            mPreparer.cancelAll();
         }
+    }
+
+    /**
+     * Binds items ahead of the scroll direction between frames, like RecyclerView's GapWorker. After
+     * a scroll step the task waits for the next frame to be drawn and then prepares items until the
+     * time left before the following frame runs out.
+     */
+    private class PrefetchTask implements Runnable {
+
+        private int mPrefetchCount;
+
+        private int mHitCount;
+
+        private int mMissCount;
 
         /**
-         * Updates the cache color hint of all known views.
-         *
-         * @param color The new cache color hint.
+         * Bound and measured views that are not attached yet, keyed by adapter position.
          */
+        private final SparseArray<View> mViews = new SparseArray<View>();
 
-    }
+        /**
+         * Sign of the last scroll step, negative when items come in from the right.
+         */
+        private int mDirection;
 
-    static View retrieveFromScrap(ArrayList<View> scrapViews, int position) {
-        int size = scrapViews.size();
-        if (size > 0) {
-            // See if we still have a view for this position.
-            for (int i = 0; i < size; i++) {
-                View view = scrapViews.get(i);
-                if (((SimpleHorizontalListView.LayoutParams) view.getLayoutParams())
-                        .scrappedFromPosition == position) {
-                    scrapViews.remove(i);
-                    return view;
+        private boolean mScheduled;
+
+        private long mFrameStartNanos;
+
+        private long mFrameIntervalNanos = 1000000000 / 60;
+
+        /**
+         * Running average of the time a prefetch bind takes, so no bind is started that can't finish
+         * before the deadline.
+         */
+        private long mAverageBindNanos;
+
+        /**
+         * Created on the first schedule on API 16 and above.
+         */
+        private PrefetchFrameCallback mFrameCallback;
+
+        void schedule(int direction) {
+            if (direction != 0) {
+                mDirection = direction;
+            }
+            if (mScheduled) {
+                return;
+            }
+            mScheduled = true;
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+                if (mFrameCallback == null) {
+                    mFrameCallback = new PrefetchFrameCallback();
                 }
+                Choreographer.getInstance().postFrameCallback(mFrameCallback);
+            } else {
+                mFrameStartNanos = System.nanoTime();
+                post(this);
             }
-            return scrapViews.remove(size - 1);
-        } else {
-            return null;
+        }
+
+        void onFrame(long frameTimeNanos) {
+            // posted now, the task runs once this frame is drawn
+            mFrameStartNanos = frameTimeNanos;
+            post(this);
+        }
+
+        /**
+         * Stops any pending prefetch and returns all prefetched views to the scrap heap.
+         */
+        void cancel() {
+            if (mScheduled) {
+                mScheduled = false;
+                removeCallbacks(this);
+                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN && mFrameCallback != null) {
+                    Choreographer.getInstance().removeFrameCallback(mFrameCallback);
+                }
+            }
+            releaseViews(Integer.MIN_VALUE, Integer.MIN_VALUE);
+        }
+
+        /**
+         * @return the prefetched view for position, removed from the prefetch cache, or null
+         */
+        View take(int position) {
+            final View view = mViews.get(position);
+            if (view != null) {
+                mViews.remove(position);
+                mHitCount++;
+            } else if (!mInLayout) {
+                mMissCount++;
+            }
+            return view;
+        }
+
+        @Override
+        public void run() {
+            mScheduled = false;
+            final int childCount = getChildCount();
+            if (mAdapter == null || mDataChanged || childCount == 0) {
+                return;
+            }
+            final int first = mFirstPosition - mPrefetchCount;
+            final int last = mFirstPosition + childCount - 1 + mPrefetchCount;
+            releaseViews(first, last);
+
+            final long deadline = mFrameStartNanos + mFrameIntervalNanos;
+            for (int i = 1; i <= mPrefetchCount; i++) {
+                final int position = mDirection < 0 ? mFirstPosition + childCount - 1 + i : mFirstPosition - i;
+                if (!mCircular && (position < 0 || position >= mItemCount)) {
+                    break;
+                }
+                if (mViews.get(position) != null) {
+                    continue;
+                }
+                final long start = System.nanoTime();
+                if (start + mAverageBindNanos > deadline) {
+                    break;
+                }
+                mViews.put(position, bindView(position));
+                final long bindNanos = System.nanoTime() - start;
+                mAverageBindNanos = mAverageBindNanos == 0 ? bindNanos : (mAverageBindNanos * 3 + bindNanos) / 4;
+            }
+        }
+
+        private View bindView(int position) {
+            final View scrapView = mRecycler.getScrapView(position);
+            final View child = bindItem(position, scrapView);
+            if (scrapView != null && child != scrapView) {
+                mRecycler.addScrapView(scrapView, position);
+            }
+            final LayoutParams p = getItemLayoutParams(child);
+            if (p != child.getLayoutParams()) {
+                child.setLayoutParams(p);
+            }
+            p.viewType = mAdapter.getItemViewType(getAdapterPosition(position));
+            if (child != scrapView) {
+                p.forceAdd = true;
+            }
+            measureItem(child, getAdapterPosition(position), p);
+            // laid out at 0, setupChild only offsets a clean view into place
+            final int top = getPaddingTop();
+            child.layout(0, top, child.getMeasuredWidth(), top + child.getMeasuredHeight());
+            return child;
+        }
+
+        /**
+         * Moves prefetched views outside of [first, last] to the scrap heap.
+         */
+        private void releaseViews(int first, int last) {
+            for (int i = mViews.size() - 1; i >= 0; i--) {
+                final int position = mViews.keyAt(i);
+                if (position < first || position > last) {
+                    mRecycler.addScrapView(mViews.valueAt(i), position);
+                    mViews.removeAt(i);
+                }
+            }
+            mRecycler.removeSkippedScrap();
+        }
+    }
+
+    /**
+     * Starts the prefetch of a frame once the Choreographer has its frame time.
+     */
+    private class PrefetchFrameCallback implements Choreographer.FrameCallback {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            mPrefetchTask.onFrame(frameTimeNanos);
         }
     }
 
+    /**
+     * Scrap views of a single view type. Views are kept in a stack so that any view can be popped in
+     * O(1), and indexed by the position they were scrapped from so that the view previously showing a
+     * position is found without walking the whole pile.
+     */
+    static class ScrapHeap {
+        private final ArrayList<View> mViews = new ArrayList<View>();
+
+        private final SparseArray<View> mViewsByPosition = new SparseArray<View>();
+
+        int size() {
+            return mViews.size();
+        }
+
+        View get(int index) {
+            return mViews.get(index);
+        }
+
+        void add(View scrap) {
+            final LayoutParams lp = (LayoutParams) scrap.getLayoutParams();
+            lp.scrapIndex = mViews.size();
+            mViews.add(scrap);
+            mViewsByPosition.put(lp.scrappedFromPosition, scrap);
+        }
+
+        /**
+         * @return The view scrapped from position if there is one, any other view otherwise, or null
+         * if the heap is empty
+         */
+        View retrieve(int position) {
+            if (mViews.isEmpty()) {
+                return null;
+            }
+            // See if we still have a view for this position.
+            final View view = mViewsByPosition.get(position);
+            if (view != null) {
+                return removeAt(((LayoutParams) view.getLayoutParams()).scrapIndex);
+            }
+            return pop();
+        }
+
+        boolean contains(View view) {
+            return mViews.contains(view);
+        }
+
+        /**
+         * @return The most recently added view
+         */
+        View pop() {
+            return removeAt(mViews.size() - 1);
+        }
+
+        private View removeAt(int index) {
+            final ArrayList<View> views = mViews;
+            final View view = views.get(index);
+            // fill the hole with the tail so that nothing has to be shifted
+            final View tail = views.remove(views.size() - 1);
+            if (tail != view) {
+                views.set(index, tail);
+                ((LayoutParams) tail.getLayoutParams()).scrapIndex = index;
+            }
+            final int position = ((LayoutParams) view.getLayoutParams()).scrappedFromPosition;
+            if (mViewsByPosition.get(position) == view) {
+                mViewsByPosition.remove(position);
+            }
+            return view;
+        }
+    }
 
 }
@@ -0,0 +1,92 @@
+package com.panbc.simplehorizontallistview;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class ItemOffsetIndexTest {
+
+    private static final int COUNT = 1000000;
+
+    @Test
+    public void millionItems_offsetsAndPositionsMatchPrefixSums() throws Exception {
+        ItemOffsetIndex index = new ItemOffsetIndex(COUNT, 40);
+        int[] widths = new int[COUNT];
+        for (int i = 0; i < COUNT; i++) {
+            widths[i] = 40;
+        }
+
+        Random random = new Random(7);
+        for (int i = 0; i < 200000; i++) {
+            int position = random.nextInt(COUNT);
+            int width = 1 + random.nextInt(200);
+            widths[position] = width;
+            index.setWidth(position, width);
+        }
+
+        long[] prefix = new long[COUNT + 1];
+        for (int i = 0; i < COUNT; i++) {
+            prefix[i + 1] = prefix[i] + widths[i];
+        }
+        assertEquals(prefix[COUNT], index.getTotalWidth());
+        for (int i = 0; i < 10000; i++) {
+            int position = random.nextInt(COUNT);
+            assertEquals(prefix[position], index.getOffset(position));
+
+            long offset = prefix[position] + random.nextInt(widths[position]);
+            assertEquals(position, index.getPosition(offset));
+        }
+    }
+
+    @Test
+    public void getPosition_clampsOutOfRangeOffsets() throws Exception {
+        ItemOffsetIndex index = new ItemOffsetIndex(10, 30);
+
+        assertEquals(0, index.getPosition(-5));
+        assertEquals(9, index.getPosition(300));
+        assertEquals(9, index.getPosition(Long.MAX_VALUE));
+        assertEquals(3, index.getPosition(90));
+    }
+
+    @Test
+    public void reset_forgetsMeasuredWidths() throws Exception {
+        ItemOffsetIndex index = new ItemOffsetIndex(4, 30);
+        index.setWidth(1, 100);
+        index.reset(3, 20);
+
+        assertEquals(60, index.getTotalWidth());
+        assertEquals(20, index.getWidth(1));
+    }
+
+    @Test
+    public void insertAndRemove_keepMeasuredWidths() throws Exception {
+        ItemOffsetIndex index = new ItemOffsetIndex(100, 30);
+        for (int i = 0; i < 100; i++) {
+            index.setWidth(i, 1 + i);
+        }
+        index.insert(40, 37);
+        assertEquals(137, index.getCount());
+        assertEquals(40, index.getWidth(39));
+        assertEquals(30, index.getWidth(40));
+        assertEquals(41, index.getWidth(77));
+        assertPrefixSums(index);
+
+        index.remove(10, 50);
+        assertEquals(87, index.getCount());
+        assertEquals(10, index.getWidth(9));
+        assertEquals(30, index.getWidth(10));
+        assertEquals(41, index.getWidth(27));
+        assertPrefixSums(index);
+    }
+
+    private static void assertPrefixSums(ItemOffsetIndex index) {
+        long sum = 0;
+        for (int i = 0; i < index.getCount(); i++) {
+            assertEquals(sum, index.getOffset(i));
+            sum += index.getWidth(i);
+        }
+        assertEquals(sum, index.getTotalWidth());
+    }
+}
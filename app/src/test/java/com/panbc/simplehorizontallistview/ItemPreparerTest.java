@@ -0,0 +1,121 @@
+package com.panbc.simplehorizontallistview;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ItemPreparerTest {
+
+    private QueueExecutor mWorker;
+
+    private QueueExecutor mMainThread;
+
+    private ItemPreparer mPreparer;
+
+    private int mPrepareCalls;
+
+    private final ItemPreparer.Preparation mPreparation = new ItemPreparer.Preparation() {
+        @Override
+        public Object prepare(int position) {
+            mPrepareCalls++;
+            return "prepared " + position;
+        }
+    };
+
+    @Before
+    public void setUp() throws Exception {
+        mWorker = new QueueExecutor();
+        mMainThread = new QueueExecutor();
+        mPreparer = new ItemPreparer(mWorker, mMainThread);
+    }
+
+    @Test
+    public void take_returnsResultOnceDelivered() throws Exception {
+        mPreparer.prepare(4, 4L, mPreparation);
+        mPreparer.prepare(4, 4L, mPreparation);
+        mWorker.runAll();
+        mMainThread.runAll();
+
+        assertEquals(1, mPrepareCalls);
+        assertEquals("prepared 4", mPreparer.take(4L));
+        assertNull(mPreparer.take(4L));
+    }
+
+    @Test
+    public void take_beforeResultArrives_cancelsTask() throws Exception {
+        mPreparer.prepare(3, 3L, mPreparation);
+        mWorker.runAll();
+
+        assertNull(mPreparer.take(3L));
+        mMainThread.runAll();
+        assertEquals(0, mPreparer.getResultCount());
+    }
+
+    @Test
+    public void cancelAll_beforeWorkerRuns_skipsPreparation() throws Exception {
+        mPreparer.prepare(1, 1L, mPreparation);
+        mPreparer.cancelAll();
+        mWorker.runAll();
+        mMainThread.runAll();
+
+        assertEquals(0, mPrepareCalls);
+        assertNull(mPreparer.take(1L));
+    }
+
+    @Test
+    public void cancelAll_whileResultInFlight_dropsStaleResult() throws Exception {
+        mPreparer.prepare(1, 1L, mPreparation);
+        mWorker.runAll();
+        mPreparer.cancelAll();
+        mPreparer.prepare(1, 1L, mPreparation);
+        // the result of the first task arrives after the data changed
+        mMainThread.runOne();
+
+        assertEquals(1, mPreparer.getPendingCount());
+        assertEquals(0, mPreparer.getResultCount());
+    }
+
+    @Test
+    public void trim_dropsItemsOutsideWindow() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            mPreparer.prepare(i, i, mPreparation);
+        }
+        mWorker.runAll();
+        mMainThread.runAll();
+
+        mPreparer.trim(2, 5);
+
+        assertEquals(4, mPreparer.getResultCount());
+        assertNull(mPreparer.take(7L));
+        assertEquals("prepared 2", mPreparer.take(2L));
+    }
+
+    /**
+     * Runs its tasks only when told to, so every interleaving can be reproduced.
+     */
+    static class QueueExecutor implements Executor {
+
+        private final List<Runnable> mTasks = new ArrayList<Runnable>();
+
+        @Override
+        public void execute(Runnable command) {
+            mTasks.add(command);
+        }
+
+        void runOne() {
+            mTasks.remove(0).run();
+        }
+
+        void runAll() {
+            while (!mTasks.isEmpty()) {
+                runOne();
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.panbc.simplehorizontallistview;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class ItemWidthCacheTest {
+
+    @Test
+    public void putAndGet_survivesGrowing() throws Exception {
+        ItemWidthCache cache = new ItemWidthCache();
+        for (int i = 0; i < 1000; i++) {
+            cache.put(i * 31L, i + 1);
+        }
+        cache.put(62L, 7);
+
+        assertEquals(1000, cache.size());
+        assertEquals(7, cache.get(62L));
+        assertEquals(1000, cache.get(999 * 31L));
+        assertEquals(ItemWidthCache.NO_WIDTH, cache.get(1L));
+    }
+
+    @Test
+    public void clear_forgetsAllWidths() throws Exception {
+        ItemWidthCache cache = new ItemWidthCache();
+        cache.put(-5L, 40);
+        cache.clear();
+
+        assertEquals(0, cache.size());
+        assertEquals(ItemWidthCache.NO_WIDTH, cache.get(-5L));
+    }
+
+    @Test
+    public void invalidRowId_isNotCached() throws Exception {
+        ItemWidthCache cache = new ItemWidthCache();
+        cache.put(Long.MIN_VALUE, 40);
+
+        assertEquals(0, cache.size());
+        assertEquals(ItemWidthCache.NO_WIDTH, cache.get(Long.MIN_VALUE));
+    }
+}
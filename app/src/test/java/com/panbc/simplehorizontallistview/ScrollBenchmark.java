@@ -0,0 +1,202 @@
+package com.panbc.simplehorizontallistview;
+
+import android.content.Context;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Locale;
+
+import static com.panbc.simplehorizontallistview.SimpleHorizontalListViewTest.MixedTypeAdapter;
+import static com.panbc.simplehorizontallistview.SimpleHorizontalListViewTest.PositionAdapter;
+import static com.panbc.simplehorizontallistview.SimpleHorizontalListViewTest.layout;
+
+/**
+ * Measures the layout, scroll and recycling hot paths of {@link SimpleHorizontalListView} on the
+ * JVM. Each scenario reports ops/sec, bytes allocated per op and getView calls per op, prints them
+ * and appends them to build/benchmark/ScrollBenchmark.txt. Skipped unless the BENCHMARK environment
+ * variable is set:
+ * <pre>
+ * BENCHMARK=1 ./gradlew testDebugUnitTest --tests '*ScrollBenchmark'
+ * </pre>
+ * Absolute numbers depend on the machine and on Robolectric's shadows; compare runs against a
+ * baseline recorded on the same machine.
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21, shadows = ShadowCachedAccessibilityManager.class)
+public class ScrollBenchmark {
+
+    private static final int WARMUP_ITERATIONS = 5;
+
+    private static final int ITERATIONS = 20;
+
+    private static final long FRAME_NANOS = 1000000000L / 120;
+
+    private Context mContext;
+
+    @Before
+    public void setUp() throws Exception {
+        Assume.assumeTrue(System.getenv("BENCHMARK") != null);
+        mContext = RuntimeEnvironment.application;
+        // flings are run frame by frame
+        ShadowLooper.pauseMainLooper();
+    }
+
+    @Test
+    public void initialFill() throws Exception {
+        final PositionAdapter adapter = new PositionAdapter(mContext, 1000);
+        run("initialFill", new Op() {
+            @Override
+            public int run() {
+                adapter.bindings = 0;
+                SimpleHorizontalListView listView = new SimpleHorizontalListView(mContext);
+                listView.setAdapter(adapter);
+                layout(listView);
+                return adapter.bindings;
+            }
+        });
+    }
+
+    @Test
+    public void sustainedScroll_10000px() throws Exception {
+        final PositionAdapter adapter = new PositionAdapter(mContext, 100000);
+        final SimpleHorizontalListView listView = new SimpleHorizontalListView(mContext);
+        listView.setAdapter(adapter);
+        layout(listView);
+        run("sustainedScroll_10000px", new Op() {
+            @Override
+            public int run() {
+                adapter.bindings = 0;
+                for (int i = 0; i < 625; i++) {
+                    listView.trackMotionScroll(-16);
+                }
+                return adapter.bindings;
+            }
+        });
+    }
+
+    @Test
+    public void flingAcross10kItems() throws Exception {
+        final PositionAdapter adapter = new PositionAdapter(mContext, 10000);
+        final SimpleHorizontalListView listView = new SimpleHorizontalListView(mContext);
+        // computed from frame time alone, so the flings don't wait for a clock
+        listView.setScrollModel(new ScrollModel.SpringModel(1, 1500, 1));
+        listView.setAdapter(adapter);
+        layout(listView);
+        run("flingAcross10kItems", new Op() {
+            @Override
+            public int run() {
+                adapter.bindings = 0;
+                listView.setSelection(0);
+                while (listView.getLastVisiblePosition() < adapter.getCount() - 1) {
+                    // the fling starts at System.nanoTime(), the frames follow on the same time base
+                    long time = System.nanoTime();
+                    listView.fling(8000);
+                    while (listView.doScrollFrame(time += FRAME_NANOS)) {
+                        // one fling, frame by frame
+                    }
+                }
+                return adapter.bindings;
+            }
+        });
+    }
+
+    @Test
+    public void notifyDataSetChangedWhileScrolling() throws Exception {
+        final PositionAdapter adapter = new PositionAdapter(mContext, 100000);
+        final SimpleHorizontalListView listView = new SimpleHorizontalListView(mContext);
+        listView.setAdapter(adapter);
+        layout(listView);
+        run("notifyDataSetChangedWhileScrolling", new Op() {
+            @Override
+            public int run() {
+                adapter.bindings = 0;
+                for (int i = 0; i < 100; i++) {
+                    listView.trackMotionScroll(-16);
+                    if (i % 10 == 0) {
+                        adapter.notifyDataSetChanged();
+                        layout(listView);
+                    }
+                }
+                return adapter.bindings;
+            }
+        });
+    }
+
+    @Test
+    public void mixedViewTypes_10000px() throws Exception {
+        final MixedTypeAdapter adapter = new MixedTypeAdapter(mContext, 100000);
+        final SimpleHorizontalListView listView = new SimpleHorizontalListView(mContext);
+        listView.setAdapter(adapter);
+        layout(listView);
+        run("mixedViewTypes_10000px", new Op() {
+            @Override
+            public int run() {
+                adapter.bindings = 0;
+                for (int i = 0; i < 625; i++) {
+                    listView.trackMotionScroll(-16);
+                }
+                return adapter.bindings;
+            }
+        });
+    }
+
+    interface Op {
+        /**
+         * @return getView calls made by the op
+         */
+        int run();
+    }
+
+    private static void run(String name, Op op) throws IOException {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            op.run();
+        }
+        long getViews = 0;
+        final long allocatedBefore = allocatedBytes();
+        final long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            getViews += op.run();
+        }
+        final long elapsed = System.nanoTime() - start;
+        final long allocated = allocatedBytes() - allocatedBefore;
+
+        final String result = String.format(Locale.US, "%-36s %12.1f ops/s %14s B/op %10.1f getView/op",
+                name, ITERATIONS * 1e9 / elapsed,
+                allocatedBefore < 0 ? "n/a" : String.valueOf(allocated / ITERATIONS),
+                (double) getViews / ITERATIONS);
+        System.out.println(result);
+        final File dir = new File("build/benchmark");
+        if (dir.isDirectory() || dir.mkdirs()) {
+            final FileWriter writer = new FileWriter(new File(dir, "ScrollBenchmark.txt"), true);
+            try {
+                writer.write(result + "\n");
+            } finally {
+                writer.close();
+            }
+        }
+    }
+
+    /**
+     * @return bytes allocated by this thread so far, or -1 if the JVM can't tell
+     */
+    static long allocatedBytes() {
+        final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(
+                    Thread.currentThread().getId());
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,280 @@
+package com.panbc.simplehorizontallistview;
+
+import android.content.Context;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Drives {@link SimpleHorizontalListView} with seeded random scrolls, flings, data changes and
+ * resizes, checking after every step that the children cover the viewport without gaps or overlaps.
+ * A failure message names the seed and step, so that it can be replayed.
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21, shadows = ShadowCachedAccessibilityManager.class)
+public class ScrollStressTest {
+
+    private static final int STEPS = 3000;
+
+    private static final int HEIGHT = 100;
+
+    private static final long FRAME_NANOS = 1000000000L / 60;
+
+    private Context mContext;
+
+    private SimpleHorizontalListView mListView;
+
+    private StressAdapter mAdapter;
+
+    private Random mRandom;
+
+    private int mWidth;
+
+    private int mMaxChildCount;
+
+    @Before
+    public void setUp() throws Exception {
+        mContext = RuntimeEnvironment.application;
+        // flings are run frame by frame with the test's frame times
+        ShadowLooper.pauseMainLooper();
+    }
+
+    @Test
+    public void randomOperations_offsetScrolling() throws Exception {
+        run(1, false);
+        run(2, false);
+    }
+
+    @Test
+    public void randomOperations_viewportScrolling() throws Exception {
+        run(3, true);
+        run(4, true);
+    }
+
+    private void run(long seed, boolean viewportScrolling) {
+        mRandom = new Random(seed);
+        mAdapter = new StressAdapter(mContext, mRandom.nextInt(300));
+        mListView = new SimpleHorizontalListView(mContext);
+        mListView.setViewportScrollingEnabled(viewportScrolling);
+        mListView.setScrollModel(new ScrollModel.SpringModel());
+        mListView.setAdapter(mAdapter);
+        mWidth = 480;
+        mMaxChildCount = 0;
+        layout();
+
+        for (int step = 0; step < STEPS; step++) {
+            final String operation = step();
+            checkInvariants("seed " + seed + ", step " + step + " (" + operation + ")");
+        }
+    }
+
+    private String step() {
+        final int count = mAdapter.getCount();
+        final int choice = mRandom.nextInt(100);
+        if (choice < 45) {
+            final int delta = mRandom.nextInt(2 * mWidth - 1) - (mWidth - 1);
+            mListView.trackMotionScroll(delta);
+            return "scroll " + delta;
+        } else if (choice < 55) {
+            final int delta = mRandom.nextInt(7) - 3;
+            mListView.trackMotionScroll(delta);
+            return "scroll " + delta;
+        } else if (choice < 65) {
+            final int velocity = (mRandom.nextBoolean() ? 1 : -1) * (1000 + mRandom.nextInt(7000));
+            // the fling starts at System.nanoTime(), the frames follow on the same time base
+            long frameTime = System.nanoTime();
+            mListView.fling(velocity);
+            // the spring model's flings come to rest within two seconds
+            for (int frame = 0; frame < 300 && mListView.doScrollFrame(frameTime += FRAME_NANOS); frame++) {
+                // run the fling frame by frame
+            }
+            return "fling " + velocity;
+        } else if (choice < 73) {
+            mAdapter.setCount(mRandom.nextInt(300));
+            mAdapter.salt = mRandom.nextInt();
+            mAdapter.notifyDataSetChanged();
+            layout();
+            return "notifyDataSetChanged " + mAdapter.getCount();
+        } else if (choice < 78) {
+            mWidth = 50 + mRandom.nextInt(650);
+            layout();
+            return "resize " + mWidth;
+        } else if (choice < 83 && count > 0) {
+            final int position = mRandom.nextInt(count);
+            mListView.setSelection(position);
+            layout();
+            return "setSelection " + position;
+        } else if (choice < 88) {
+            final int position = mRandom.nextInt(count + 1);
+            final int itemCount = 1 + mRandom.nextInt(10);
+            mAdapter.insert(position, itemCount);
+            mListView.notifyItemRangeInserted(position, itemCount);
+            layout();
+            return "insert " + position + "+" + itemCount;
+        } else if (choice < 93 && count > 0) {
+            final int position = mRandom.nextInt(count);
+            final int itemCount = 1 + mRandom.nextInt(Math.min(10, count - position));
+            mAdapter.remove(position, itemCount);
+            mListView.notifyItemRangeRemoved(position, itemCount);
+            layout();
+            return "remove " + position + "+" + itemCount;
+        } else if (choice < 97 && count > 0) {
+            final int position = mRandom.nextInt(count);
+            mListView.notifyItemChanged(position);
+            layout();
+            return "change " + position;
+        }
+        mListView.trackMotionScroll(0);
+        return "scroll 0";
+    }
+
+    private void layout() {
+        mListView.measure(View.MeasureSpec.makeMeasureSpec(mWidth, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        mListView.layout(0, 0, mWidth, HEIGHT);
+    }
+
+    private void checkInvariants(String message) {
+        final int count = mAdapter.getCount();
+        final int childCount = mListView.getChildCount();
+        if (count == 0) {
+            assertEquals(message, 0, childCount);
+            return;
+        }
+        assertTrue(message + ": no children", childCount > 0);
+        mMaxChildCount = Math.max(mMaxChildCount, childCount);
+
+        final int first = mListView.getFirstVisiblePosition();
+        final int last = first + childCount - 1;
+        assertTrue(message + ": first position " + first, first >= 0);
+        assertTrue(message + ": last position " + last, last < count);
+
+        final int viewportLeft = mListView.getScrollX();
+        final int viewportRight = viewportLeft + mWidth;
+        for (int i = 0; i < childCount; i++) {
+            final View child = mListView.getChildAt(i);
+            assertEquals(message + ": item of child " + i, mAdapter.items.get(first + i), child.getTag());
+            assertEquals(message + ": width of child " + i, child.getLayoutParams().width, child.getWidth());
+            assertFalse(message + ": child " + i + " is also scrap", mListView.isScrapView(child));
+            if (i > 0) {
+                assertEquals(message + ": child " + i + " not adjacent",
+                        mListView.getChildAt(i - 1).getRight(), child.getLeft());
+            }
+        }
+
+        final View firstChild = mListView.getChildAt(0);
+        final View lastChild = mListView.getChildAt(childCount - 1);
+        assertTrue(message + ": gap at the left edge", firstChild.getLeft() <= viewportLeft);
+        assertTrue(message + ": first child out of sight", firstChild.getRight() > viewportLeft);
+        assertTrue(message + ": last child out of sight", lastChild.getLeft() < viewportRight);
+        if (last < count - 1) {
+            assertTrue(message + ": gap at the right edge", lastChild.getRight() >= viewportRight);
+        } else if (first > 0 || firstChild.getLeft() < viewportLeft) {
+            // scrolled away from the start, so the end must reach the right edge
+            assertTrue(message + ": gap after the last item", lastChild.getRight() >= viewportRight);
+        }
+
+        // at most one pile per view type plus one screen scrapped by a layout pass
+        final int maxScrap = 2 * Math.max(SimpleHorizontalListView.DEFAULT_MAX_SCRAP, mMaxChildCount) + mMaxChildCount;
+        assertTrue(message + ": scrap " + mListView.getRecycledViewCount(),
+                mListView.getRecycledViewCount() <= maxScrap);
+    }
+
+    /**
+     * Items of widths between 1 and 150 pixels that change with salt, in two view types. Each item
+     * has an id that moves with it when items are inserted or removed before it, and children are
+     * tagged with the id they were bound with. Children keep the width they were bound with until
+     * they are bound again.
+     */
+    static class StressAdapter extends BaseAdapter {
+
+        private final Context mContext;
+
+        /**
+         * Item ids in adapter order.
+         */
+        final List<Integer> items = new ArrayList<Integer>();
+
+        private int mNextId;
+
+        int salt;
+
+        StressAdapter(Context context, int count) {
+            mContext = context;
+            setCount(count);
+        }
+
+        void setCount(int count) {
+            items.clear();
+            insert(0, count);
+        }
+
+        void insert(int position, int itemCount) {
+            for (int i = 0; i < itemCount; i++) {
+                items.add(position + i, mNextId++);
+            }
+        }
+
+        void remove(int position, int itemCount) {
+            items.subList(position, position + itemCount).clear();
+        }
+
+        int getItemWidth(int position) {
+            int hash = (items.get(position) + 1) * 0x9E3779B1 ^ salt;
+            hash ^= hash >>> 16;
+            return 1 + (hash & 0x7fffffff) % 150;
+        }
+
+        @Override
+        public int getCount() {
+            return items.size();
+        }
+
+        @Override
+        public Object getItem(int position) {
+            return null;
+        }
+
+        @Override
+        public long getItemId(int position) {
+            return items.get(position);
+        }
+
+        @Override
+        public int getViewTypeCount() {
+            return 2;
+        }
+
+        @Override
+        public int getItemViewType(int position) {
+            return getItemWidth(position) > 100 ? 1 : 0;
+        }
+
+        @Override
+        public View getView(int position, View convertView, ViewGroup parent) {
+            if (convertView == null) {
+                convertView = new View(mContext);
+            }
+            convertView.setLayoutParams(new SimpleHorizontalListView.LayoutParams(
+                    getItemWidth(position), ViewGroup.LayoutParams.MATCH_PARENT));
+            convertView.setTag(items.get(position));
+            return convertView;
+        }
+    }
+}
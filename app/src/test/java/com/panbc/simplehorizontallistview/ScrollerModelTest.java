@@ -0,0 +1,79 @@
+package com.panbc.simplehorizontallistview;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class ScrollerModelTest {
+
+    private static final long FRAME_120HZ = 1000000000L / 120;
+
+    @Test
+    public void fling_decaysMonotonicallyToFinalPosition() throws Exception {
+        ScrollModel model = new ScrollModel.ScrollerModel(RuntimeEnvironment.application);
+        model.fling(3000, 0);
+        int finalPosition = model.getFinalPosition();
+        assertTrue(finalPosition > 0);
+
+        int last = 0;
+        long time = 0;
+        while (model.computePosition(time += FRAME_120HZ)) {
+            assertTrue(model.getPosition() >= last);
+            last = model.getPosition();
+        }
+        assertEquals(finalPosition, model.getPosition());
+        assertTrue(model.isFinished());
+    }
+
+    @Test
+    public void fling_sameTimestamps_sameDeltas() throws Exception {
+        ScrollModel model60 = new ScrollModel.ScrollerModel(RuntimeEnvironment.application);
+        ScrollModel model120 = new ScrollModel.ScrollerModel(RuntimeEnvironment.application);
+        model60.fling(-2500, 0);
+        model120.fling(-2500, 0);
+
+        long time = 0;
+        for (int frame = 0; frame < 30; frame++) {
+            time += 2 * FRAME_120HZ;
+            model120.computePosition(time - FRAME_120HZ);
+            model120.computePosition(time);
+            model60.computePosition(time);
+            // positions depend on the frame time only, not on how often the model was sampled
+            assertEquals(model60.getPosition(), model120.getPosition());
+        }
+    }
+
+    @Test
+    public void scrollBy_endsAtDistanceAfterDuration() throws Exception {
+        ScrollModel model = new ScrollModel.ScrollerModel(RuntimeEnvironment.application);
+        model.scrollBy(-400, 250, 0);
+
+        assertTrue(model.computePosition(125000000L));
+        assertTrue(model.getPosition() < 0 && model.getPosition() > -400);
+        assertFalse(model.computePosition(250000000L));
+        assertEquals(-400, model.getPosition());
+    }
+
+    @Test
+    public void setFinalPosition_fling_landsOnPosition() throws Exception {
+        ScrollModel model = new ScrollModel.ScrollerModel(RuntimeEnvironment.application);
+        model.fling(4000, 0);
+        model.computePosition(FRAME_120HZ);
+        assertTrue(model.setFinalPosition(600));
+        assertEquals(600, model.getFinalPosition());
+
+        long time = FRAME_120HZ;
+        while (model.computePosition(time += FRAME_120HZ)) {
+            // run the fling to its end
+        }
+        assertEquals(600, model.getPosition());
+    }
+}
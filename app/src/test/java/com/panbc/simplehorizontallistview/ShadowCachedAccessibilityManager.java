@@ -0,0 +1,30 @@
+package com.panbc.simplehorizontallistview;
+
+import android.content.Context;
+import android.view.accessibility.AccessibilityManager;
+
+import org.robolectric.annotation.Implementation;
+import org.robolectric.annotation.Implements;
+import org.robolectric.shadows.ShadowAccessibilityManager;
+
+/**
+ * Hands out one AccessibilityManager per context. Robolectric's own shadow creates a new one for
+ * every call, and View.offsetLeftAndRight() makes one, each registering more content observers, so
+ * every scroll step would be slower and allocate more than the one before.
+ */
+@Implements(AccessibilityManager.class)
+public class ShadowCachedAccessibilityManager extends ShadowAccessibilityManager {
+
+    private static Context sContext;
+
+    private static AccessibilityManager sInstance;
+
+    @Implementation
+    public static AccessibilityManager getInstance(Context context) throws Exception {
+        if (sInstance == null || sContext != context) {
+            sInstance = ShadowAccessibilityManager.getInstance(context);
+            sContext = context;
+        }
+        return sInstance;
+    }
+}
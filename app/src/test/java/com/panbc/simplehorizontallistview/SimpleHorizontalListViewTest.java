@@ -0,0 +1,1261 @@
+package com.panbc.simplehorizontallistview;
+
+import android.content.Context;
+import android.graphics.Paint;
+import android.os.Parcelable;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+import android.widget.FrameLayout;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs {@link SimpleHorizontalListView} on the JVM and checks how it recycles its children.
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21, shadows = ShadowCachedAccessibilityManager.class)
+public class SimpleHorizontalListViewTest {
+
+    private static final int WIDTH = 480;
+
+    private static final int HEIGHT = 100;
+
+    /**
+     * Robolectric's shadows allocate on every intercepted View call, about 1.5 KB per scroll step on
+     * JDK 17. The list itself allocates nothing once its scrap heaps are filled.
+     */
+    private static final int SHADOW_BYTES_PER_STEP = 2048;
+
+    private Context mContext;
+
+    private SimpleHorizontalListView mListView;
+
+    @Before
+    public void setUp() throws Exception {
+        mContext = RuntimeEnvironment.application;
+        // frames and prefetches are run by hand
+        ShadowLooper.pauseMainLooper();
+        mListView = new SimpleHorizontalListView(mContext);
+    }
+
+    @Test
+    public void scrolling_mixedViewTypes_reusesTypedScrap() throws Exception {
+        MixedTypeAdapter adapter = new MixedTypeAdapter(mContext, 200);
+        mListView.setAdapter(adapter);
+        layout(mListView);
+
+        // the first lap inflates whatever each type's scrap heap is missing
+        scrollToEndAndBack(mListView);
+        adapter.inflations = 0;
+        adapter.typeMismatches = 0;
+
+        scrollToEndAndBack(mListView);
+        assertEquals(0, adapter.inflations);
+        assertEquals(0, adapter.typeMismatches);
+    }
+
+    @Test
+    public void steadyStateScroll_allocatesNothing() throws Exception {
+        CountingListView listView = new CountingListView(mContext);
+        ForeignParamsAdapter adapter = new ForeignParamsAdapter(mContext, 100);
+        listView.setAdapter(adapter);
+        layout(listView);
+
+        // the first laps fill the scrap heaps and warm up Robolectric and the JIT
+        scrollToEndAndBack(listView);
+        scrollToEndAndBack(listView);
+        adapter.inflations = 0;
+        listView.generatedLayoutParams = 0;
+
+        int steps = 0;
+        final long allocatedBefore = ScrollBenchmark.allocatedBytes();
+        while (listView.trackMotionScroll(-15)) {
+            steps++;
+        }
+        while (listView.trackMotionScroll(15)) {
+            steps++;
+        }
+        final long allocated = ScrollBenchmark.allocatedBytes() - allocatedBefore;
+        assertEquals("views inflated", 0, adapter.inflations);
+        assertEquals("LayoutParams allocated", 0, listView.generatedLayoutParams);
+        if (allocatedBefore >= 0) {
+            assertTrue("bytes allocated per step: " + allocated / steps, allocated / steps < SHADOW_BYTES_PER_STEP);
+        }
+    }
+
+    @Test
+    public void scrolling_adapterIgnoringConvertView_keepsScrapBounded() throws Exception {
+        ForeignParamsAdapter adapter = new ForeignParamsAdapter(mContext, 100);
+        adapter.ignoreConvertView = true;
+        mListView.setMaxRecycledViews(0, 2);
+        mListView.setAdapter(adapter);
+        layout(mListView);
+
+        while (mListView.trackMotionScroll(-15)) {
+            assertTrue(mListView.getRecycledViewCount(0) <= 2);
+        }
+        assertTrue(mListView.getEvictedViewCount() > 0);
+        assertEquals(mListView.getRecycledViewCount(0), mListView.getRecycledViewCount());
+    }
+
+    @Test
+    public void setSelection_fixedWidth_bindsOnlyVisibleItems() throws Exception {
+        PositionAdapter adapter = new PositionAdapter(mContext, 10000);
+        mListView.setItemWidth(50);
+        mListView.setAdapter(adapter);
+        layout(mListView);
+        adapter.bindings = 0;
+
+        mListView.setSelection(5000);
+
+        assertEquals(5000, mListView.getFirstVisiblePosition());
+        assertEquals(5000, mListView.getChildAt(0).getTag());
+        assertEquals(0, mListView.getChildAt(0).getLeft());
+        assertEquals(mListView.getChildCount(), adapter.bindings);
+        assertEquals(5000, mListView.getPositionForOffset(5000 * 50 + 49));
+    }
+
+    @Test
+    public void setSelection_nearEnd_leavesNoGap() throws Exception {
+        PositionAdapter adapter = new PositionAdapter(mContext, 10000);
+        mListView.setItemWidth(50);
+        mListView.setAdapter(adapter);
+        layout(mListView);
+
+        mListView.setSelection(9999);
+
+        View lastChild = mListView.getChildAt(mListView.getChildCount() - 1);
+        assertEquals(9999, mListView.getLastVisiblePosition());
+        assertEquals(WIDTH, lastChild.getRight());
+    }
+
+    @Test
+    public void notifyItemChanged_rebindsOnlyThatItem() throws Exception {
+        ItemListAdapter adapter = new ItemListAdapter(mContext, 100);
+        mListView.setAdapter(adapter);
+        layout(mListView);
+        View oldChild = mListView.getChildAt(5);
+        adapter.bindings = 0;
+
+        adapter.items.set(5, "changed");
+        mListView.notifyItemChanged(5);
+
+        assertEquals(1, adapter.bindings);
+        assertSame(oldChild, mListView.getChildAt(5));
+        assertEquals("changed", mListView.getChildAt(5).getTag());
+        assertContiguous(mListView);
+    }
+
+    @Test
+    public void notifyItemChanged_adapterIgnoringConvertView_scrapsOldChildOnce() throws Exception {
+        ForeignParamsAdapter adapter = new ForeignParamsAdapter(mContext, 100);
+        mListView.setAdapter(adapter);
+        layout(mListView);
+        View oldChild = mListView.getChildAt(3);
+        assertEquals(0, mListView.getRecycledViewCount(0));
+
+        adapter.ignoreConvertView = true;
+        mListView.notifyItemChanged(3);
+
+        View child = mListView.getChildAt(3);
+        assertNotSame(oldChild, child);
+        assertSame(mListView, child.getParent());
+        assertTrue(mListView.isScrapView(oldChild));
+        assertEquals(1, mListView.getRecycledViewCount(0));
+        assertContiguous(mListView);
+    }
+
+    @Test
+    public void notifyItemChanged_adapterReplacingLayoutParams_keepsViewType() throws Exception {
+        MixedTypeAdapter adapter = new MixedTypeAdapter(mContext, 100);
+        mListView.setAdapter(adapter);
+        layout(mListView);
+        View oldChild = mListView.getChildAt(3);
+
+        adapter.replaceParams = true;
+        mListView.notifyItemChanged(3);
+
+        assertSame(oldChild, mListView.getChildAt(3));
+        SimpleHorizontalListView.LayoutParams lp = (SimpleHorizontalListView.LayoutParams) oldChild.getLayoutParams();
+        assertEquals(1, lp.viewType);
+        assertEquals(70, oldChild.getWidth());
+        assertContiguous(mListView);
+
+        // scrapped into the heap of its type
+        adapter.replaceParams = false;
+        scrollToEndAndBack(mListView);
+        assertEquals(0, adapter.typeMismatches);
+    }
+
+    @Test
+    public void notifyItemRangeInserted_shiftsFollowingChildren() throws Exception {
+        ItemListAdapter adapter = new ItemListAdapter(mContext, 100);
+        mListView.setAdapter(adapter);
+        layout(mListView);
+        View oldChild = mListView.getChildAt(3);
+        adapter.bindings = 0;
+
+        adapter.items.add(3, "new");
+        mListView.notifyItemRangeInserted(3, 1);
+
+        assertEquals(1, adapter.bindings);
+        assertEquals("new", mListView.getChildAt(3).getTag());
+        assertSame(oldChild, mListView.getChildAt(4));
+        assertEquals("item 3", mListView.getChildAt(4).getTag());
+        assertContiguous(mListView);
+    }
+
+    @Test
+    public void notifyItemRangeRemoved_bindsOnlyRevealedItems() throws Exception {
+        ItemListAdapter adapter = new ItemListAdapter(mContext, 100);
+        mListView.setAdapter(adapter);
+        layout(mListView);
+        View oldChild = mListView.getChildAt(3);
+        int lastPosition = mListView.getLastVisiblePosition();
+        adapter.bindings = 0;
+
+        adapter.items.remove(2);
+        mListView.notifyItemRangeRemoved(2, 1);
+
+        assertEquals(1, adapter.bindings);
+        assertSame(oldChild, mListView.getChildAt(2));
+        assertEquals(lastPosition, mListView.getLastVisiblePosition());
+        assertContiguous(mListView);
+    }
+
+    @Test
+    public void notifyItemMoved_keepsChildrenInAdapterOrder() throws Exception {
+        ItemListAdapter adapter = new ItemListAdapter(mContext, 100);
+        mListView.setAdapter(adapter);
+        layout(mListView);
+
+        adapter.items.add(3, adapter.items.remove(1));
+        mListView.notifyItemMoved(1, 3);
+
+        for (int i = 0; i < mListView.getChildCount(); i++) {
+            assertEquals(adapter.items.get(i), mListView.getChildAt(i).getTag());
+        }
+        assertContiguous(mListView);
+    }
+
+    @Test
+    public void scrollStep_offsetsEachChildOnceAndBindsOnlyExposedItems() throws Exception {
+        OffsetCountingAdapter adapter = new OffsetCountingAdapter(mContext, 1000);
+        mListView.setAdapter(adapter);
+        layout(mListView);
+        int firstLastPosition = mListView.getLastVisiblePosition();
+        adapter.offsets = 0;
+        adapter.bindings = 0;
+
+        int pixels = 0;
+        int maxOffsets = 0;
+        for (int step = 0; step < 500; step++) {
+            mListView.trackMotionScroll(-7);
+            pixels += 7;
+            maxOffsets += mListView.getChildCount();
+        }
+
+        // every child is moved once per step, whether it stayed attached or was just recycled
+        assertTrue("offsets per pixel: " + (float) adapter.offsets / pixels, adapter.offsets <= maxOffsets);
+        assertEquals(mListView.getLastVisiblePosition() - firstLastPosition, adapter.bindings);
+    }
+
+    @Test
+    public void scrollStep_overshootingStart_keepsPositionsContiguous() throws Exception {
+        PositionAdapter adapter = new PositionAdapter(mContext, 100);
+        mListView.setAdapter(adapter);
+        layout(mListView);
+        mListView.setSelection(12);
+        mListView.trackMotionScroll(-20);
+
+        while (mListView.trackMotionScroll(WIDTH - 1)) {
+            // one screen per step, so the last step lands past the first item
+        }
+
+        assertEquals(0, mListView.getFirstVisiblePosition());
+        assertEquals(0, mListView.getChildAt(0).getLeft());
+        for (int i = 0; i < mListView.getChildCount(); i++) {
+            assertEquals(i, mListView.getChildAt(i).getTag());
+        }
+        assertContiguous(mListView);
+    }
+
+    @Test
+    public void viewportScrolling_movesScrollXInsteadOfChildren() throws Exception {
+        OffsetCountingAdapter adapter = new OffsetCountingAdapter(mContext, 1000);
+        mListView.setViewportScrollingEnabled(true);
+        mListView.setAdapter(adapter);
+        layout(mListView);
+        View second = mListView.getChildAt(1);
+        int secondLeft = second.getLeft();
+        adapter.offsets = 0;
+        adapter.bindings = 0;
+
+        mListView.trackMotionScroll(-60);
+        assertEquals(60, mListView.getScrollX());
+        assertSame(second, mListView.getChildAt(0));
+        assertEquals(secondLeft, second.getLeft());
+
+        for (int step = 0; step < 500; step++) {
+            mListView.trackMotionScroll(-7);
+        }
+        // only children attached at the edge are moved, each once
+        assertTrue(adapter.offsets <= adapter.bindings);
+
+        scrollToEndAndBack(mListView);
+        assertEquals(0, mListView.getFirstVisiblePosition());
+        assertEquals(mListView.getScrollX(), mListView.getChildAt(0).getLeft());
+        assertContiguous(mListView);
+
+        // a layout pass starts from scrollX 0 again
+        mListView.requestLayout();
+        layout(mListView);
+        assertEquals(0, mListView.getScrollX());
+        assertEquals(0, mListView.getChildAt(0).getLeft());
+    }
+
+    @Test
+    public void metrics_countBindingsByOrigin() throws Exception {
+        assertNull(mListView.getMetrics());
+        PositionAdapter adapter = new PositionAdapter(mContext, 200);
+        mListView.setAdapter(adapter);
+        mListView.setMetricsEnabled(true);
+        layout(mListView);
+        scrollToEndAndBack(mListView);
+        mListView.resetMetrics();
+        adapter.bindings = 0;
+
+        scrollToEndAndBack(mListView);
+        ScrollMetrics metrics = mListView.getMetrics();
+
+        assertEquals(0, metrics.getInflates());
+        assertEquals(adapter.bindings, metrics.getGetViewCount());
+        assertEquals(adapter.bindings, metrics.getScrapHitsSamePosition() + metrics.getScrapHitsOtherPosition());
+        assertEquals(adapter.bindings, metrics.getSetupChildCount());
+        assertTrue(metrics.getScrollCount() > 0);
+        assertTrue(metrics.getMaxScrapSize() > 0);
+    }
+
+    @Test
+    public void snapStart_fling_landsOnItemWithoutOvershoot() throws Exception {
+        PositionAdapter adapter = new PositionAdapter(mContext, 1000);
+        mListView.setItemWidth(70);
+        mListView.setSnapMode(SimpleHorizontalListView.SNAP_START);
+        mListView.setScrollModel(new ScrollModel.SpringModel());
+        mListView.setAdapter(adapter);
+        layout(mListView);
+        final List<Integer> deltas = new ArrayList<Integer>();
+        mListView.setOnScrollFrameListener(new SimpleHorizontalListView.OnScrollFrameListener() {
+            @Override
+            public void onScrollFrame(long frameTimeNanos, int deltaX) {
+                deltas.add(deltaX);
+            }
+        });
+        int lastPosition = mListView.getLastVisiblePosition();
+        adapter.bindings = 0;
+
+        assertTrue(mListView.fling(3000));
+        long time = System.nanoTime();
+        while (mListView.doScrollFrame(time += 1000000000L / 120)) {
+            // run the fling frame by frame
+        }
+
+        assertEquals(0, mListView.getChildAt(0).getLeft());
+        assertTrue(mListView.getFirstVisiblePosition() > 0);
+        for (int delta : deltas) {
+            assertTrue("moved back by " + delta, delta <= 0);
+        }
+        assertEquals(mListView.getLastVisiblePosition() - lastPosition, adapter.bindings);
+    }
+
+    @Test
+    public void snapPage_fling_movesOnePage() throws Exception {
+        mListView.setItemWidth(100);
+        mListView.setSnapMode(SimpleHorizontalListView.SNAP_PAGE);
+        mListView.setScrollModel(new ScrollModel.SpringModel());
+        mListView.setAdapter(new PositionAdapter(mContext, 1000));
+        layout(mListView);
+
+        assertTrue(mListView.fling(8000));
+        long time = System.nanoTime();
+        while (mListView.doScrollFrame(time += 1000000000L / 120)) {
+            // run the fling frame by frame
+        }
+
+        // one screen of 480 pixels, rounded to the nearest item start
+        assertEquals(5, mListView.getFirstVisiblePosition());
+        assertEquals(0, mListView.getChildAt(0).getLeft());
+    }
+
+    @Test
+    public void prefetch_bindsNextItemBeforeItScrollsIntoView() throws Exception {
+        PositionAdapter adapter = new PositionAdapter(mContext, 100);
+        mListView.setPrefetchItemCount(1);
+        mListView.setAdapter(adapter);
+        layout(mListView);
+        assertEquals(9, mListView.getLastVisiblePosition());
+
+        // item 9 ends at 485, item 10 is still off screen
+        assertTrue(mListView.trackMotionScroll(-15));
+        int bindings = adapter.bindings;
+        int inflations = adapter.inflations;
+        assertTrue(mListView.doPrefetch());
+        assertEquals(bindings + 1, adapter.bindings);
+        assertEquals(inflations + 1, adapter.inflations);
+        assertFalse(mListView.doPrefetch());
+
+        // the prefetched view was never attached, it is added where item 10 comes in
+        assertTrue(mListView.trackMotionScroll(-10));
+        assertEquals(bindings + 1, adapter.bindings);
+        assertEquals(1, mListView.getPrefetchHitCount());
+        assertEquals(0, mListView.getPrefetchMissCount());
+        View child = mListView.getChildAt(mListView.getChildCount() - 1);
+        assertEquals(10, child.getTag());
+        assertSame(mListView, child.getParent());
+        assertEquals(475, child.getLeft());
+        assertEquals(525, child.getRight());
+        assertContiguous(mListView);
+
+        // item 11 comes in without the pending prefetch having run
+        assertTrue(mListView.trackMotionScroll(-50));
+        assertEquals(11, mListView.getChildAt(mListView.getChildCount() - 1).getTag());
+        assertEquals(1, mListView.getPrefetchHitCount());
+        assertEquals(1, mListView.getPrefetchMissCount());
+    }
+
+    @Test
+    public void prefetch_dataChange_cancelsPendingPrefetch() throws Exception {
+        PositionAdapter adapter = new PositionAdapter(mContext, 100);
+        mListView.setPrefetchItemCount(1);
+        mListView.setAdapter(adapter);
+        layout(mListView);
+        assertTrue(mListView.trackMotionScroll(-15));
+        assertTrue(mListView.doPrefetch());
+        assertTrue(mListView.trackMotionScroll(-1));
+
+        adapter.notifyDataSetChanged();
+        assertFalse(mListView.doPrefetch());
+        layout(mListView);
+
+        // the view prefetched for the old data is not handed out
+        int bindings = adapter.bindings;
+        assertTrue(mListView.trackMotionScroll(-10));
+        assertEquals(10, mListView.getChildAt(mListView.getChildCount() - 1).getTag());
+        assertEquals(bindings + 1, adapter.bindings);
+        assertEquals(0, mListView.getPrefetchHitCount());
+        assertEquals(1, mListView.getPrefetchMissCount());
+        assertContiguous(mListView);
+    }
+
+    @Test
+    public void prepareExecutor_preparedResultReachesGetView() throws Exception {
+        ItemPreparerTest.QueueExecutor worker = new ItemPreparerTest.QueueExecutor();
+        PreparingPositionAdapter adapter = new PreparingPositionAdapter(mContext, 100);
+        mListView.setPrepareExecutor(worker);
+        mListView.setAdapter(adapter);
+        layout(mListView);
+        assertEquals(9, mListView.getLastVisiblePosition());
+        assertNull(adapter.prepared.get(9));
+
+        // the items of the next screen are prepared on the worker and delivered on the UI thread
+        worker.runAll();
+        ShadowLooper.runUiThreadTasks();
+        assertTrue(mListView.trackMotionScroll(-60));
+
+        assertEquals(10, mListView.getChildAt(mListView.getChildCount() - 1).getTag());
+        assertEquals("prepared 10", adapter.prepared.get(10));
+        assertContiguous(mListView);
+    }
+
+    @Test
+    public void prepareExecutor_dataChange_dropsStaleResults() throws Exception {
+        ItemPreparerTest.QueueExecutor worker = new ItemPreparerTest.QueueExecutor();
+        PreparingPositionAdapter adapter = new PreparingPositionAdapter(mContext, 100);
+        mListView.setPrepareExecutor(worker);
+        mListView.setAdapter(adapter);
+        layout(mListView);
+
+        // position 10 is prepared for the old data, but its result is still on the way
+        worker.runAll();
+        adapter.generation++;
+        adapter.notifyDataSetChanged();
+        ShadowLooper.runUiThreadTasks();
+        layout(mListView);
+        assertTrue(mListView.trackMotionScroll(-60));
+
+        assertEquals(10, mListView.getChildAt(mListView.getChildCount() - 1).getTag());
+        assertTrue(adapter.prepared.containsKey(10));
+        assertNull(adapter.prepared.get(10));
+
+        // what is prepared after the change is handed out
+        worker.runAll();
+        ShadowLooper.runUiThreadTasks();
+        assertTrue(mListView.trackMotionScroll(-50));
+        assertEquals(11, mListView.getChildAt(mListView.getChildCount() - 1).getTag());
+        assertEquals("prepared 11 of generation 1", adapter.prepared.get(11));
+    }
+
+    @Test
+    public void hardwareLayersDuringFling_droppedAtRestAndWhenTouchStopsFling() throws Exception {
+        AcceleratedListView listView = new AcceleratedListView(mContext);
+        listView.setHardwareLayersDuringFling(true);
+        listView.setAdapter(new LayerAdapter(mContext, 1000));
+        layout(listView);
+        assertLayerType(View.LAYER_TYPE_NONE, listView);
+
+        assertTrue(listView.fling(3000));
+        long time = System.nanoTime();
+        assertTrue(listView.doScrollFrame(time += 1000000000L / 120));
+        // including the children added by the frame
+        assertLayerType(View.LAYER_TYPE_HARDWARE, listView);
+        while (listView.doScrollFrame(time += 1000000000L / 120)) {
+            // run the fling frame by frame
+        }
+        assertLayerType(View.LAYER_TYPE_NONE, listView);
+
+        assertTrue(listView.fling(3000));
+        time = System.nanoTime();
+        assertTrue(listView.doScrollFrame(time += 1000000000L / 120));
+        assertLayerType(View.LAYER_TYPE_HARDWARE, listView);
+        listView.onTouchEvent(event(MotionEvent.ACTION_DOWN, 100, 50));
+        assertLayerType(View.LAYER_TYPE_NONE, listView);
+        assertFalse(listView.doScrollFrame(time + 1000000000L / 120));
+    }
+
+    @Test
+    public void restoreInstanceState_laysOutAtSavedPositionBindingOnlyVisibleItems() throws Exception {
+        ItemListAdapter adapter = new ItemListAdapter(mContext, 1000);
+        mListView.setAdapter(adapter);
+        layout(mListView);
+        mListView.setSelection(500);
+        mListView.trackMotionScroll(-20);
+        Parcelable state = mListView.onSaveInstanceState();
+
+        SimpleHorizontalListView restored = new SimpleHorizontalListView(mContext);
+        adapter.bindings = 0;
+        restored.setAdapter(adapter);
+        restored.onRestoreInstanceState(state);
+        layout(restored);
+
+        assertEquals(500, restored.getFirstVisiblePosition());
+        assertEquals(-20, restored.getChildAt(0).getLeft());
+        assertEquals(restored.getChildCount(), adapter.bindings);
+    }
+
+    @Test
+    public void restoreInstanceState_dataMoved_reanchorsByStableId() throws Exception {
+        ItemListAdapter adapter = new ItemListAdapter(mContext, 100);
+        adapter.stableIds = true;
+        mListView.setAdapter(adapter);
+        layout(mListView);
+        mListView.setSelection(40);
+        Parcelable state = mListView.onSaveInstanceState();
+
+        adapter.items.add(0, "new 0");
+        adapter.items.add(0, "new 1");
+        adapter.items.add(0, "new 2");
+        SimpleHorizontalListView restored = new SimpleHorizontalListView(mContext);
+        restored.setAdapter(adapter);
+        restored.onRestoreInstanceState(state);
+        layout(restored);
+
+        assertEquals(43, restored.getFirstVisiblePosition());
+        assertEquals("item 40", restored.getChildAt(0).getTag());
+    }
+
+    @Test
+    public void verticalDrag_leavesTouchToParent() throws Exception {
+        DisallowTrackingLayout parent = new DisallowTrackingLayout(mContext);
+        mListView.setAdapter(new PositionAdapter(mContext, 100));
+        parent.addView(mListView);
+        layout(parent);
+
+        assertEquals(false, mListView.onInterceptTouchEvent(event(MotionEvent.ACTION_DOWN, 200, 50)));
+        assertEquals(false, mListView.onInterceptTouchEvent(event(MotionEvent.ACTION_MOVE, 190, 90)));
+        assertEquals(false, parent.disallowed);
+    }
+
+    @Test
+    public void horizontalDrag_claimsTouchAndScrolls() throws Exception {
+        DisallowTrackingLayout parent = new DisallowTrackingLayout(mContext);
+        mListView.setAdapter(new PositionAdapter(mContext, 100));
+        parent.addView(mListView);
+        layout(parent);
+
+        mListView.onInterceptTouchEvent(event(MotionEvent.ACTION_DOWN, 200, 50));
+        assertTrue(mListView.onInterceptTouchEvent(event(MotionEvent.ACTION_MOVE, 140, 55)));
+        assertTrue(parent.disallowed);
+
+        mListView.onTouchEvent(event(MotionEvent.ACTION_MOVE, 140, 55));
+        // the first child may scroll out and be recycled, follow one that stays in sight
+        View child = mListView.getChildAt(2);
+        int left = child.getLeft();
+        mListView.onTouchEvent(event(MotionEvent.ACTION_MOVE, 100, 55));
+        assertTrue(mListView.indexOfChild(child) >= 0);
+        assertEquals(left - 40, child.getLeft());
+    }
+
+    @Test
+    public void dragRelease_flingsThroughOnFling() throws Exception {
+        final List<Float> velocities = new ArrayList<Float>();
+        SimpleHorizontalListView listView = new SimpleHorizontalListView(mContext) {
+            @Override
+            protected boolean onFling(MotionEvent e1, MotionEvent e2, float velocityX, float velocityY) {
+                assertEquals(MotionEvent.ACTION_DOWN, e1.getActionMasked());
+                assertEquals(MotionEvent.ACTION_UP, e2.getActionMasked());
+                velocities.add(velocityX);
+                // vetoed
+                return false;
+            }
+        };
+        listView.setAdapter(new PositionAdapter(mContext, 100));
+        layout(listView);
+
+        listView.onTouchEvent(MotionEvent.obtain(0, 0, MotionEvent.ACTION_DOWN, 300, 50, 0));
+        listView.onTouchEvent(MotionEvent.obtain(0, 10, MotionEvent.ACTION_MOVE, 250, 50, 0));
+        listView.onTouchEvent(MotionEvent.obtain(0, 20, MotionEvent.ACTION_MOVE, 200, 50, 0));
+        listView.onTouchEvent(MotionEvent.obtain(0, 30, MotionEvent.ACTION_UP, 150, 50, 0));
+        assertEquals(1, velocities.size());
+        // the finger moved left
+        assertTrue(velocities.get(0) < 0);
+        assertFalse(listView.doScrollFrame(System.nanoTime()));
+    }
+
+    @Test
+    public void dividerDecoration_separatesItemsWithoutWideningThem() throws Exception {
+        PositionAdapter adapter = new PositionAdapter(mContext, 100);
+        mListView.addItemDecoration(new SimpleHorizontalListView.DividerDecoration(0xff000000, 4));
+        mListView.setAdapter(adapter);
+        layout(mListView);
+        assertEquals(50, mListView.getChildAt(0).getWidth());
+        assertEquals(54, mListView.getChildAt(1).getLeft());
+
+        scrollToEndAndBack(mListView);
+        assertEquals(0, mListView.getFirstVisiblePosition());
+        assertEquals(0, mListView.getChildAt(0).getLeft());
+        for (int i = 1; i < mListView.getChildCount(); i++) {
+            View previous = mListView.getChildAt(i - 1);
+            assertEquals(50, previous.getWidth());
+            assertEquals(previous.getRight() + 4, mListView.getChildAt(i).getLeft());
+            assertEquals(mListView.getDecoratedRight(previous),
+                    mListView.getDecoratedLeft(mListView.getChildAt(i)));
+        }
+
+        // the last item has no divider after it
+        while (mListView.trackMotionScroll(-15)) {
+            // keep scrolling until the last item is fully shown
+        }
+        View last = mListView.getChildAt(mListView.getChildCount() - 1);
+        assertEquals(WIDTH, last.getRight());
+    }
+
+    @Test
+    public void itemAnimations_removedViewReachesScrapOnlyWhenAnimationEnds() throws Exception {
+        PositionAdapter adapter = new PositionAdapter(mContext, 100);
+        mListView.setItemAnimationsEnabled(true);
+        mListView.setAdapter(adapter);
+        layout(mListView);
+        View removed = mListView.getChildAt(1);
+        View next = mListView.getChildAt(2);
+        int childCount = mListView.getChildCount();
+
+        adapter.count--;
+        mListView.notifyItemRangeRemoved(1, 1);
+        // the layout is final right away, only the drawing lags behind
+        assertSame(next, mListView.getChildAt(1));
+        assertEquals(50, next.getLeft());
+        assertEquals(50f, next.getTranslationX(), 0f);
+        assertEquals(childCount, mListView.getChildCount());
+        assertTrue(removed.getParent() != mListView);
+        assertTrue(!mListView.isScrapView(removed));
+        // the item revealed at the right edge slides in next to its neighbour
+        View revealed = mListView.getChildAt(mListView.getChildCount() - 1);
+        assertEquals(50f, revealed.getTranslationX(), 0f);
+
+        mListView.endItemAnimations();
+        assertEquals(0f, next.getTranslationX(), 0f);
+        assertEquals(1f, removed.getAlpha(), 0f);
+        assertTrue(mListView.isScrapView(removed));
+        assertContiguous(mListView);
+    }
+
+    @Test
+    public void spanCount_stacksItemsInColumnsThatScrollTogether() throws Exception {
+        PositionAdapter adapter = new PositionAdapter(mContext, 101);
+        mListView.setSpanCount(2);
+        mListView.setAdapter(adapter);
+        layout(mListView);
+        assertEquals(0, mListView.getChildAt(1).getLeft());
+        assertEquals(0, mListView.getChildAt(0).getTop());
+        assertEquals(HEIGHT / 2, mListView.getChildAt(1).getTop());
+        assertEquals(HEIGHT / 2, mListView.getChildAt(1).getHeight());
+        assertEquals(50, mListView.getChildAt(2).getLeft());
+        assertEquals(2, mListView.getChildAt(2).getTag());
+
+        for (int step = 0; step < 300; step++) {
+            mListView.trackMotionScroll(-13);
+            assertEquals(0, mListView.getFirstVisiblePosition() % 2);
+            for (int i = 0; i < mListView.getChildCount(); i++) {
+                View child = mListView.getChildAt(i);
+                assertEquals(mListView.getFirstVisiblePosition() + i, child.getTag());
+                assertEquals(i % 2 * HEIGHT / 2, child.getTop());
+                if (i >= 2) {
+                    assertEquals(mListView.getChildAt(i - 2).getRight(), child.getLeft());
+                }
+            }
+        }
+        // the last column holds a single item and ends at the right edge
+        assertEquals(100, mListView.getLastVisiblePosition());
+        assertEquals(WIDTH, mListView.getChildAt(mListView.getChildCount() - 1).getRight());
+        assertEquals(51 * 50, mListView.computeHorizontalScrollRange());
+        assertEquals(98, mListView.getPositionForOffset(49 * 50 + 10));
+    }
+
+    @Test
+    public void recycledViewPool_newAdapterReusesViewsOfAnotherList() throws Exception {
+        RecycledViewPool pool = new RecycledViewPool();
+        pool.setMaxRecycledViews(0, 20);
+        mListView.setRecycledViewPool(pool);
+        mListView.setAdapter(new PositionAdapter(mContext, 100));
+        layout(mListView);
+        View view = mListView.getChildAt(0);
+        int childCount = mListView.getChildCount();
+
+        // the row is bound to other data and gives its views to the pool
+        mListView.setAdapter(null);
+        assertEquals(childCount, pool.getRecycledViewCount(0));
+        assertNull(view.getParent());
+        layout(mListView);
+        assertEquals(0, mListView.getChildCount());
+
+        SimpleHorizontalListView other = new SimpleHorizontalListView(mContext);
+        other.setRecycledViewPool(pool);
+        PositionAdapter adapter = new PositionAdapter(mContext, 100);
+        other.setAdapter(adapter);
+        layout(other);
+        assertEquals(childCount, other.getChildCount());
+        assertEquals(0, adapter.inflations);
+        assertEquals(0, pool.getRecycledViewCount(0));
+        assertSame(other, view.getParent());
+        assertContiguous(other);
+    }
+
+    @Test
+    public void recycledViewPool_viewsHandedToPoolAreNotEvicted() throws Exception {
+        RecycledViewPool pool = new RecycledViewPool();
+        pool.setMaxRecycledViews(0, 200);
+        ForeignParamsAdapter adapter = new ForeignParamsAdapter(mContext, 100);
+        adapter.ignoreConvertView = true;
+        mListView.setRecycledViewPool(pool);
+        mListView.setMaxRecycledViews(0, 2);
+        mListView.setAdapter(adapter);
+        layout(mListView);
+
+        while (mListView.trackMotionScroll(-15)) {
+            assertTrue(mListView.getRecycledViewCount(0) <= 2);
+        }
+        assertTrue(pool.getRecycledViewCount(0) > 0);
+        assertEquals(0, pool.getEvictedViewCount());
+        assertEquals(0, mListView.getEvictedViewCount());
+    }
+
+    @Test
+    public void recycledViewPool_dropsLeastRecentlyReturnedViews() throws Exception {
+        RecycledViewPool pool = new RecycledViewPool();
+        pool.setMaxRecycledViews(1, 2);
+        View first = new View(mContext);
+        View second = new View(mContext);
+        View third = new View(mContext);
+        pool.putRecycledView(first, 1);
+        pool.putRecycledView(second, 1);
+        pool.putRecycledView(third, 1);
+
+        assertEquals(1, pool.getEvictedViewCount());
+        assertSame(third, pool.getRecycledView(1));
+        assertSame(second, pool.getRecycledView(1));
+        assertNull(pool.getRecycledView(1));
+        assertNull(pool.getRecycledView(0));
+    }
+
+    @Test
+    public void circular_wrapsPositionsAndReusesViewsEveryLap() throws Exception {
+        PositionAdapter adapter = new PositionAdapter(mContext, 5);
+        mListView.setCircular(true);
+        mListView.setAdapter(adapter);
+        layout(mListView);
+        // five items don't fill the screen, they repeat
+        assertEquals(10, mListView.getChildCount());
+        assertEquals(0, mListView.getChildAt(5).getTag());
+        assertTrue(mListView.canScrollHorizontally(-1));
+
+        // past the start of the data the end shows up again
+        assertTrue(mListView.trackMotionScroll(30));
+        assertEquals(4, mListView.getFirstVisiblePosition());
+        assertEquals(4, mListView.getChildAt(0).getTag());
+        assertEquals(-20, mListView.getChildAt(0).getLeft());
+        assertContiguous(mListView);
+
+        int inflations = adapter.inflations;
+        for (int step = 0; step < 400; step++) {
+            assertTrue(mListView.trackMotionScroll(-17));
+            int first = mListView.getFirstVisiblePosition();
+            for (int i = 0; i < mListView.getChildCount(); i++) {
+                assertEquals((first + i) % 5, mListView.getChildAt(i).getTag());
+            }
+            assertContiguous(mListView);
+        }
+        // dozens of laps, bound into the views of the first one
+        assertTrue(adapter.inflations - inflations <= 2);
+    }
+
+    private static MotionEvent event(int action, float x, float y) {
+        return MotionEvent.obtain(0, 0, action, x, y, 0);
+    }
+
+    @Test
+    public void scrapHeap_prefersViewOfSamePosition() throws Exception {
+        SimpleHorizontalListView.ScrapHeap heap = new SimpleHorizontalListView.ScrapHeap();
+        View[] views = new View[5];
+        for (int i = 0; i < views.length; i++) {
+            views[i] = scrapView(i + 10);
+            heap.add(views[i]);
+        }
+
+        assertSame(views[1], heap.retrieve(11));
+        assertSame(views[3], heap.retrieve(13));
+        // no view left for position 11, so any view is handed out
+        assertNotNull(heap.retrieve(11));
+        assertEquals(2, heap.size());
+        heap.pop();
+        heap.pop();
+        assertNull(heap.retrieve(11));
+    }
+
+    private View scrapView(int position) {
+        View view = new View(mContext);
+        SimpleHorizontalListView.LayoutParams lp = new SimpleHorizontalListView.LayoutParams(
+                ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.MATCH_PARENT);
+        lp.scrappedFromPosition = position;
+        view.setLayoutParams(lp);
+        return view;
+    }
+
+    static void assertLayerType(int layerType, SimpleHorizontalListView listView) {
+        for (int i = 0; i < listView.getChildCount(); i++) {
+            assertEquals(layerType, listView.getChildAt(i).getLayerType());
+        }
+    }
+
+    static void assertContiguous(SimpleHorizontalListView listView) {
+        for (int i = 1; i < listView.getChildCount(); i++) {
+            assertEquals(listView.getChildAt(i - 1).getRight(), listView.getChildAt(i).getLeft());
+        }
+    }
+
+    static void layout(View view) {
+        view.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        view.layout(0, 0, WIDTH, HEIGHT);
+    }
+
+    static void scrollToEndAndBack(SimpleHorizontalListView listView) {
+        while (listView.trackMotionScroll(-15)) {
+            // keep scrolling until the last item is fully shown
+        }
+        while (listView.trackMotionScroll(15)) {
+            // keep scrolling until the first item is fully shown
+        }
+    }
+
+    static class DisallowTrackingLayout extends FrameLayout {
+
+        boolean disallowed;
+
+        DisallowTrackingLayout(Context context) {
+            super(context);
+        }
+
+        @Override
+        public void requestDisallowInterceptTouchEvent(boolean disallowIntercept) {
+            disallowed |= disallowIntercept;
+            super.requestDisallowInterceptTouchEvent(disallowIntercept);
+        }
+    }
+
+    /**
+     * Counts every LayoutParams the list view allocates for its children.
+     */
+    static class CountingListView extends SimpleHorizontalListView {
+
+        int generatedLayoutParams;
+
+        CountingListView(Context context) {
+            super(context);
+        }
+
+        @Override
+        protected LayoutParams generateDefaultLayoutParams() {
+            generatedLayoutParams++;
+            return super.generateDefaultLayoutParams();
+        }
+
+        @Override
+        protected LayoutParams generateLayoutParams(ViewGroup.LayoutParams p) {
+            generatedLayoutParams++;
+            return super.generateLayoutParams(p);
+        }
+    }
+
+    /**
+     * Claims a hardware accelerated window, which Robolectric never has, so that fling layers are used.
+     */
+    static class AcceleratedListView extends SimpleHorizontalListView {
+
+        AcceleratedListView(Context context) {
+            super(context);
+        }
+
+        @Override
+        public boolean isHardwareAccelerated() {
+            return true;
+        }
+    }
+
+    /**
+     * Keeps the layer type it was given, Robolectric's RenderNode doesn't and always reports none.
+     */
+    static class LayerView extends View {
+
+        private int mLayerType = LAYER_TYPE_NONE;
+
+        LayerView(Context context) {
+            super(context);
+        }
+
+        @Override
+        public void setLayerType(int layerType, Paint paint) {
+            super.setLayerType(layerType, paint);
+            mLayerType = layerType;
+        }
+
+        @Override
+        public int getLayerType() {
+            return mLayerType;
+        }
+    }
+
+    /**
+     * A {@link PositionAdapter} showing its items in {@link LayerView}s.
+     */
+    static class LayerAdapter extends PositionAdapter {
+
+        LayerAdapter(Context context, int count) {
+            super(context, count);
+        }
+
+        @Override
+        public View getView(int position, View convertView, ViewGroup parent) {
+            if (convertView == null) {
+                convertView = new LayerView(parent.getContext());
+                convertView.setMinimumWidth(50);
+            }
+            return super.getView(position, convertView, parent);
+        }
+    }
+
+    /**
+     * Hands out views without LayoutParams and views with plain {@link ViewGroup.LayoutParams}, like
+     * adapters that don't know about {@link SimpleHorizontalListView.LayoutParams} do.
+     */
+    static class ForeignParamsAdapter extends BaseAdapter {
+
+        private final Context mContext;
+
+        private final int mCount;
+
+        int inflations;
+
+        boolean ignoreConvertView;
+
+        ForeignParamsAdapter(Context context, int count) {
+            mContext = context;
+            mCount = count;
+        }
+
+        @Override
+        public int getCount() {
+            return mCount;
+        }
+
+        @Override
+        public Object getItem(int position) {
+            return null;
+        }
+
+        @Override
+        public long getItemId(int position) {
+            return position;
+        }
+
+        @Override
+        public View getView(int position, View convertView, ViewGroup parent) {
+            if (convertView == null || ignoreConvertView) {
+                inflations++;
+                convertView = new View(mContext);
+                convertView.setMinimumWidth(60);
+                if (inflations % 2 == 0) {
+                    convertView.setLayoutParams(new ViewGroup.LayoutParams(60, ViewGroup.LayoutParams.MATCH_PARENT));
+                }
+            }
+            return convertView;
+        }
+    }
+
+    /**
+     * Tags every view with the position it shows and counts all calls to getView.
+     */
+    static class PositionAdapter extends BaseAdapter {
+
+        private final Context mContext;
+
+        int count;
+
+        int bindings;
+
+        int inflations;
+
+        PositionAdapter(Context context, int count) {
+            mContext = context;
+            this.count = count;
+        }
+
+        @Override
+        public int getCount() {
+            return count;
+        }
+
+        @Override
+        public Object getItem(int position) {
+            return null;
+        }
+
+        @Override
+        public long getItemId(int position) {
+            return position;
+        }
+
+        @Override
+        public View getView(int position, View convertView, ViewGroup parent) {
+            bindings++;
+            if (convertView == null) {
+                inflations++;
+                convertView = new View(mContext);
+                convertView.setMinimumWidth(50);
+            }
+            convertView.setTag(position);
+            return convertView;
+        }
+    }
+
+    /**
+     * Prepares every item of a {@link PositionAdapter} and records what getView was handed for it.
+     */
+    static class PreparingPositionAdapter extends PositionAdapter
+            implements SimpleHorizontalListView.PreparingAdapter {
+
+        final Map<Integer, Object> prepared = new HashMap<Integer, Object>();
+
+        int generation;
+
+        PreparingPositionAdapter(Context context, int count) {
+            super(context, count);
+        }
+
+        @Override
+        public Object prepareItem(int position) {
+            return generation == 0 ? "prepared " + position
+                    : "prepared " + position + " of generation " + generation;
+        }
+
+        @Override
+        public View getView(int position, View convertView, ViewGroup parent, Object prepared) {
+            this.prepared.put(position, prepared);
+            return getView(position, convertView, parent);
+        }
+    }
+
+    /**
+     * Binds {@link PositionAdapter} items to views counting how often they are moved horizontally.
+     */
+    static class OffsetCountingAdapter extends PositionAdapter {
+
+        int offsets;
+
+        OffsetCountingAdapter(Context context, int count) {
+            super(context, count);
+        }
+
+        @Override
+        public View getView(int position, View convertView, ViewGroup parent) {
+            if (convertView == null) {
+                convertView = new View(parent.getContext()) {
+                    @Override
+                    public void offsetLeftAndRight(int offset) {
+                        offsets++;
+                        super.offsetLeftAndRight(offset);
+                    }
+                };
+                convertView.setMinimumWidth(50);
+            }
+            return super.getView(position, convertView, parent);
+        }
+    }
+
+    /**
+     * Backed by a mutable list of item names, every view is tagged with the item it shows.
+     */
+    static class ItemListAdapter extends BaseAdapter {
+
+        private final Context mContext;
+
+        final List<String> items = new ArrayList<String>();
+
+        int bindings;
+
+        boolean stableIds;
+
+        ItemListAdapter(Context context, int count) {
+            mContext = context;
+            for (int i = 0; i < count; i++) {
+                items.add("item " + i);
+            }
+        }
+
+        @Override
+        public int getCount() {
+            return items.size();
+        }
+
+        @Override
+        public Object getItem(int position) {
+            return items.get(position);
+        }
+
+        @Override
+        public long getItemId(int position) {
+            return stableIds ? items.get(position).hashCode() : position;
+        }
+
+        @Override
+        public boolean hasStableIds() {
+            return stableIds;
+        }
+
+        @Override
+        public View getView(int position, View convertView, ViewGroup parent) {
+            bindings++;
+            if (convertView == null) {
+                convertView = new View(mContext);
+                convertView.setLayoutParams(new SimpleHorizontalListView.LayoutParams(50, ViewGroup.LayoutParams.MATCH_PARENT));
+            }
+            convertView.setTag(items.get(position));
+            return convertView;
+        }
+    }
+
+    /**
+     * Every third item is a wide item of view type 1, the others are narrow items of view type 0.
+     */
+    static class MixedTypeAdapter extends BaseAdapter {
+
+        private final Context mContext;
+
+        private final int mCount;
+
+        int inflations;
+
+        int typeMismatches;
+
+        int bindings;
+
+        /**
+         * Set to give every bound view new plain LayoutParams, like adapters that size views per item.
+         */
+        boolean replaceParams;
+
+        MixedTypeAdapter(Context context, int count) {
+            mContext = context;
+            mCount = count;
+        }
+
+        @Override
+        public int getCount() {
+            return mCount;
+        }
+
+        @Override
+        public Object getItem(int position) {
+            return null;
+        }
+
+        @Override
+        public long getItemId(int position) {
+            return position;
+        }
+
+        @Override
+        public int getViewTypeCount() {
+            return 2;
+        }
+
+        @Override
+        public int getItemViewType(int position) {
+            return position % 3 == 0 ? 1 : 0;
+        }
+
+        int getItemWidth(int position) {
+            return getItemViewType(position) == 1 ? 70 : 40;
+        }
+
+        @Override
+        public View getView(int position, View convertView, ViewGroup parent) {
+            bindings++;
+            final int viewType = getItemViewType(position);
+            if (convertView == null) {
+                inflations++;
+                convertView = new View(mContext);
+                convertView.setTag(viewType);
+                convertView.setLayoutParams(new SimpleHorizontalListView.LayoutParams(
+                        getItemWidth(position), ViewGroup.LayoutParams.MATCH_PARENT));
+            } else if (!Integer.valueOf(viewType).equals(convertView.getTag())) {
+                typeMismatches++;
+            }
+            if (replaceParams) {
+                convertView.setLayoutParams(new ViewGroup.LayoutParams(
+                        getItemWidth(position), ViewGroup.LayoutParams.MATCH_PARENT));
+            }
+            return convertView;
+        }
+    }
+}
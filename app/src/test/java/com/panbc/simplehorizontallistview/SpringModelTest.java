@@ -0,0 +1,73 @@
+package com.panbc.simplehorizontallistview;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SpringModelTest {
+
+    private static final long FRAME_120HZ = 1000000000L / 120;
+
+    @Test
+    public void fling_decaysMonotonicallyToFinalPosition() throws Exception {
+        ScrollModel model = new ScrollModel.SpringModel();
+        model.fling(3000, 0);
+        int finalPosition = model.getFinalPosition();
+
+        int last = 0;
+        long time = 0;
+        while (model.computePosition(time += FRAME_120HZ)) {
+            assertTrue(model.getPosition() >= last);
+            last = model.getPosition();
+        }
+        assertEquals(finalPosition, model.getPosition());
+        assertTrue(model.isFinished());
+    }
+
+    @Test
+    public void fling_sameTimestamps_sameDeltas() throws Exception {
+        ScrollModel model60 = new ScrollModel.SpringModel();
+        ScrollModel model120 = new ScrollModel.SpringModel();
+        model60.fling(-2500, 0);
+        model120.fling(-2500, 0);
+
+        long time = 0;
+        for (int frame = 0; frame < 30; frame++) {
+            time += 2 * FRAME_120HZ;
+            model120.computePosition(time - FRAME_120HZ);
+            model120.computePosition(time);
+            model60.computePosition(time);
+            // positions depend on the frame time only, not on how often the model was sampled
+            assertEquals(model60.getPosition(), model120.getPosition());
+        }
+    }
+
+    @Test
+    public void setFinalPosition_fling_landsExactlyWithoutOvershoot() throws Exception {
+        ScrollModel model = new ScrollModel.SpringModel();
+        model.fling(4000, 0);
+        model.computePosition(FRAME_120HZ);
+        assertTrue(model.setFinalPosition(600));
+
+        long time = FRAME_120HZ;
+        while (model.computePosition(time += FRAME_120HZ)) {
+            assertTrue(model.getPosition() <= 600);
+        }
+        assertEquals(600, model.getPosition());
+    }
+
+    @Test
+    public void scrollBy_criticallyDamped_settlesOnTarget() throws Exception {
+        ScrollModel model = new ScrollModel.SpringModel();
+        model.scrollBy(-300, 0, 0);
+
+        long time = 0;
+        while (model.computePosition(time += FRAME_120HZ)) {
+            assertTrue(model.getPosition() >= -300);
+        }
+        assertEquals(-300, model.getPosition());
+        assertFalse(model.computePosition(time + FRAME_120HZ));
+    }
+}